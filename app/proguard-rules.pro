@@ -106,4 +106,9 @@
 -dontwarn kotlin.Unit
 
 # Top-level functions that can only be used by Kotlin.
--dontwarn retrofit2.-KotlinExtensions
\ No newline at end of file
+-dontwarn retrofit2.-KotlinExtensions
+
+# SlimModelConverterFactory looks up the generated adapters of the SDK models via reflection
+-keepclassmembers class com.meisolsson.githubsdk.model.** {
+    public static com.squareup.moshi.JsonAdapter jsonAdapter(...);
+}
@@ -30,6 +30,7 @@ import android.content.res.ColorStateList;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.text.format.DateFormat;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -77,6 +78,7 @@ import com.gh4a.activities.SearchActivity;
 import com.gh4a.activities.home.HomeActivity;
 import com.gh4a.fragment.SettingsFragment;
 import com.gh4a.utils.IntentUtils;
+import com.gh4a.utils.RateLimitScheduler;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.utils.UiUtils;
 import com.gh4a.widget.SwipeRefreshLayout;
@@ -88,12 +90,16 @@ import com.squareup.moshi.JsonDataException;
 
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import fr.castorflex.android.smoothprogressbar.SmoothProgressBar;
+import io.reactivex.ObservableTransformer;
 import io.reactivex.SingleTransformer;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 
 public abstract class BaseActivity extends AppCompatActivity implements
         SwipeRefreshLayout.OnRefreshListener,
@@ -638,6 +644,13 @@ public abstract class BaseActivity extends AppCompatActivity implements
                 .compose(mRxLoader.makeSingleTransformer(id, force));
     }
 
+    public <T> ObservableTransformer<T, T> makeLoaderObservable(int id, boolean force) {
+        return upstream -> upstream
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .compose(mRxLoader.makeObservableTransformer(id, force));
+    }
+
     protected void setErrorViewVisibility(boolean visible, Throwable e) {
         View content = findViewById(R.id.content);
         View error = findViewById(R.id.error);
@@ -677,6 +690,11 @@ public abstract class BaseActivity extends AppCompatActivity implements
                 messageView.setText(
                         getString(R.string.load_failure_explanation_with_reason, re.getMessage()));
                 retryButton.setVisibility(View.VISIBLE);
+            } else if (e instanceof RateLimitScheduler.RateLimitExceededException) {
+                long resetTime = ((RateLimitScheduler.RateLimitExceededException) e).getResetTime();
+                messageView.setText(getString(R.string.load_failure_explanation_rate_limit,
+                        DateFormat.getTimeFormat(this).format(new Date(resetTime))));
+                retryButton.setVisibility(View.VISIBLE);
             } else if (e instanceof JsonDataException) {
                 messageView.setText(getString(R.string.load_failure_explanation_parsing));
                 retryButton.setVisibility(View.GONE);
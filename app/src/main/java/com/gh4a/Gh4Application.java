@@ -24,6 +24,9 @@ import android.os.Build;
 import android.util.LongSparseArray;
 
 import com.gh4a.fragment.SettingsFragment;
+import com.gh4a.utils.BitmapPool;
+import com.gh4a.utils.DecodedImageCache;
+import com.gh4a.utils.ListSnapshotStore;
 import com.gh4a.utils.StringUtils;
 import com.gh4a.worker.NotificationsWorker;
 import com.meisolsson.githubsdk.model.User;
@@ -122,10 +125,29 @@ public class Gh4Application extends Application implements
 
         mPt = new PrettyTime();
         ServiceFactory.initClient(this);
+        ListSnapshotStore.init(this);
+        updateBodyMediaTypes(prefs);
 
         updateNotificationWorker(prefs);
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // Unused images can be decoded again when needed, and pooled
+            // bitmaps are only useful while scrolling through lists
+            DecodedImageCache.clear();
+            BitmapPool.clear();
+        }
+    }
+
+    private void updateBodyMediaTypes(SharedPreferences prefs) {
+        // Only configurable in debug builds
+        ServiceFactory.setBodyMediaTypesEnabled(!BuildConfig.DEBUG
+                || prefs.getBoolean(SettingsFragment.KEY_BODY_MEDIA_TYPES, true));
+    }
+
     private void updateNotificationWorker(SharedPreferences prefs) {
         if (isAuthorized() && prefs.getBoolean(SettingsFragment.KEY_NOTIFICATIONS, false)) {
             int intervalMinutes = prefs.getInt(SettingsFragment.KEY_NOTIFICATION_INTERVAL, 15);
@@ -240,6 +262,7 @@ public class Gh4Application extends Application implements
                 .apply();
 
         NotificationsWorker.cancel(this);
+        ListSnapshotStore.clear();
     }
 
     private SharedPreferences getPrefs() {
@@ -258,6 +281,8 @@ public class Gh4Application extends Application implements
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
         if (key.equals(SettingsFragment.KEY_THEME)) {
             updateTheme(sharedPreferences);
+        } else if (key.equals(SettingsFragment.KEY_BODY_MEDIA_TYPES)) {
+            updateBodyMediaTypes(sharedPreferences);
         }
     }
 
@@ -4,18 +4,25 @@ import android.content.Context;
 import android.util.Log;
 
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.NetworkMetrics;
+import com.gh4a.utils.RateLimitScheduler;
+import com.gh4a.utils.RequestCoalescingInterceptor;
+import com.gh4a.utils.SlimModelConverterFactory;
 import com.meisolsson.githubsdk.core.ByteArrayResponseConverterFactory;
 import com.meisolsson.githubsdk.core.GitHubPaginationInterceptor;
 import com.meisolsson.githubsdk.core.ServiceGenerator;
 import com.meisolsson.githubsdk.core.StringResponseConverterFactory;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import okhttp3.Cache;
 import okhttp3.CacheControl;
+import okhttp3.Call;
 import okhttp3.Credentials;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
@@ -31,6 +38,16 @@ public class ServiceFactory {
             "application/vnd.github.v3.raw+json," +
             "application/vnd.github.v3.html+json";
 
+    // Accept headers for consumers which only need one representation of markdown bodies
+    // (issue, comment and release texts). With the default header, the API returns both.
+    /** Only return the raw markdown, for consumers which don't render bodies as HTML */
+    public static final String ACCEPT_RAW = "application/vnd.github.v3.raw+json";
+    /** Only return the rendered HTML, for consumers which never edit or quote bodies */
+    public static final String ACCEPT_HTML = "application/vnd.github.v3.html+json";
+
+    // Allows comparing response sizes with and without the above headers in debug builds
+    private static volatile boolean sBodyMediaTypesEnabled = true;
+
     private final static HttpLoggingInterceptor LOGGING_INTERCEPTOR = new HttpLoggingInterceptor()
             .setLevel(HttpLoggingInterceptor.Level.BASIC);
 
@@ -45,14 +62,6 @@ public class ServiceFactory {
         return response;
     };
 
-    private final static Interceptor CACHE_BYPASS_INTERCEPTOR = chain -> {
-        Request request = chain.request()
-                .newBuilder()
-                .addHeader("Cache-Control", "no-cache")
-                .build();
-        return chain.proceed(request);
-    };
-
     // FIXME: The notifications endpoint currently returns invalid/empty ETags. GH support
     //        says they're looking into it and to use If-Modified-Since in the meantime.
     //        Unfortunately, the Last-Modified header can't be relied on either, as it's not
@@ -104,16 +113,121 @@ public class ServiceFactory {
                 .build();
     };
 
-    private final static Retrofit.Builder RETROFIT_BUILDER = new Retrofit.Builder()
-            .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-            .addConverterFactory(new StringResponseConverterFactory())
-            .addConverterFactory(new ByteArrayResponseConverterFactory())
-            .addConverterFactory(MoshiConverterFactory.create(ServiceGenerator.moshi));
+    // Make identical requests issued at the same time (e.g. by multiple fragments
+    // of the same screen) share one network call
+    private final static RequestCoalescingInterceptor REQUEST_COALESCING_INTERCEPTOR =
+            new RequestCoalescingInterceptor();
+
+    private final static RateLimitScheduler RATE_LIMIT_SCHEDULER = new RateLimitScheduler();
+
+    private final static NetworkMetrics NETWORK_METRICS = new NetworkMetrics();
+
+    // Applies the options of the service the request was made with
+    private final static Interceptor REQUEST_OPTIONS_INTERCEPTOR = chain -> {
+        Request original = chain.request();
+        RequestOptions options = original.tag(RequestOptions.class);
+        if (options == null) {
+            options = RequestOptions.DEFAULT;
+        }
+
+        Request.Builder requestBuilder = original.newBuilder()
+                .method(original.method(), original.body())
+                .tag(RateLimitScheduler.Priority.class, options.priority);
+
+        String tokenToUse = options.token != null
+                ? options.token : Gh4Application.get().getAuthToken();
+        if (tokenToUse != null) {
+            requestBuilder.header("Authorization", "Token " + tokenToUse);
+        } else {
+            requestBuilder.header("Authorization",
+                    Credentials.basic(BuildConfig.CLIENT_ID, BuildConfig.CLIENT_SECRET));
+        }
+        if (options.pageSize != null && original.url().queryParameterNames().contains("page")) {
+            requestBuilder.url(original.url().newBuilder()
+                    .addQueryParameter("per_page", String.valueOf(options.pageSize))
+                    .build());
+        }
+        if (original.header("Accept") == null) {
+            final String header;
+            if (options.acceptHeader != null && (sBodyMediaTypesEnabled
+                    || (!ACCEPT_RAW.equals(options.acceptHeader)
+                            && !ACCEPT_HTML.equals(options.acceptHeader)))) {
+                header = options.acceptHeader;
+            } else {
+                header = DEFAULT_HEADER_ACCEPT;
+            }
+            requestBuilder.addHeader("Accept", header);
+        }
+        if (options.cacheOnly) {
+            requestBuilder.cacheControl(CacheControl.FORCE_CACHE);
+        } else if (options.bypassCache) {
+            requestBuilder.addHeader("Cache-Control", "no-cache");
+        }
+
+        return chain.proceed(requestBuilder.build());
+    };
 
+    private static OkHttpClient sBaseHttpClient;
     private static OkHttpClient sApiHttpClient;
     private static OkHttpClient sImageHttpClient;
 
-    private final static HashMap<String, Object> sCache = new HashMap<>();
+    private final static ConcurrentHashMap<Class<?>, ServiceVariants> sServices =
+            new ConcurrentHashMap<>();
+
+    private static class RequestOptions {
+        static final RequestOptions DEFAULT = new RequestOptions(false, null, null, null,
+                RateLimitScheduler.Priority.FOREGROUND, false, false);
+
+        final boolean bypassCache;
+        final String acceptHeader;
+        final String token;
+        final Integer pageSize;
+        final RateLimitScheduler.Priority priority;
+        // only return cached responses, regardless of their age
+        final boolean cacheOnly;
+        // decode responses with SlimModelConverterFactory
+        final boolean slimModels;
+
+        RequestOptions(boolean bypassCache, String acceptHeader, String token,
+                Integer pageSize, RateLimitScheduler.Priority priority, boolean cacheOnly,
+                boolean slimModels) {
+            this.bypassCache = bypassCache;
+            this.acceptHeader = acceptHeader;
+            this.token = token;
+            this.pageSize = pageSize;
+            this.priority = priority;
+            this.cacheOnly = cacheOnly;
+            this.slimModels = slimModels;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RequestOptions)) {
+                return false;
+            }
+            RequestOptions other = (RequestOptions) o;
+            return bypassCache == other.bypassCache
+                    && Objects.equals(acceptHeader, other.acceptHeader)
+                    && Objects.equals(token, other.token)
+                    && Objects.equals(pageSize, other.pageSize)
+                    && priority == other.priority
+                    && cacheOnly == other.cacheOnly
+                    && slimModels == other.slimModels;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bypassCache, acceptHeader, token, pageSize, priority,
+                    cacheOnly, slimModels);
+        }
+    }
+
+    private static class ServiceVariants {
+        // Services for the option combinations used by almost all callers, which can
+        // be looked up without allocating a key. See getCommonVariantIndex().
+        final AtomicReferenceArray<Object> mCommonVariants = new AtomicReferenceArray<>(4);
+        final ConcurrentHashMap<RequestOptions, Object> mOtherVariants = new ConcurrentHashMap<>();
+    }
 
     public static <S> S get(Class<S> serviceClass, boolean bypassCache) {
         return get(serviceClass, bypassCache, null, null, null);
@@ -129,78 +243,138 @@ public class ServiceFactory {
 
     public static <S> S get(Class<S> serviceClass, boolean bypassCache, String acceptHeader,
             String token, Integer pageSize) {
-        String key = makeKey(serviceClass, bypassCache, acceptHeader, token, pageSize);
-        S service = (S) sCache.get(key);
-        if (service == null) {
-            service = createService(serviceClass, bypassCache, acceptHeader, token, pageSize);
-            sCache.put(key, service);
-        }
-        return service;
+        return get(serviceClass, bypassCache, acceptHeader, token, pageSize,
+                RateLimitScheduler.Priority.FOREGROUND);
     }
 
-    private static String makeKey(Class<?> serviceClass, boolean bypassCache,
-            String acceptHeader, String token, Integer pageSize) {
-        return String.format(Locale.US, "%s-%d-%s-%s-%d",
-                serviceClass.getSimpleName(), bypassCache ? 1 : 0,
-                acceptHeader != null ? acceptHeader : "",
-                token != null ? token : "", pageSize != null ? pageSize : 0);
+    public static <S> S get(Class<S> serviceClass, boolean bypassCache, String acceptHeader,
+            String token, Integer pageSize, RateLimitScheduler.Priority priority) {
+        return get(serviceClass, bypassCache, acceptHeader, token, pageSize, priority,
+                false, false);
     }
 
-    private static <S> S createService(Class<S> serviceClass, final boolean bypassCache,
-            final String acceptHeader, final String token, final Integer pageSize) {
-        OkHttpClient.Builder clientBuilder = sApiHttpClient.newBuilder()
-                .addInterceptor(PAGINATION_INTERCEPTOR)
-                .addNetworkInterceptor(ETAG_WORKAROUND_INTERCEPTOR)
-                .addNetworkInterceptor(CACHE_MAX_AGE_INTERCEPTOR)
-                .addInterceptor(chain -> {
-                    Request original = chain.request();
-
-                    Request.Builder requestBuilder = original.newBuilder()
-                            .method(original.method(), original.body());
-
-                    String tokenToUse = token != null
-                            ? token : Gh4Application.get().getAuthToken();
-                    if (tokenToUse != null) {
-                        requestBuilder.header("Authorization", "Token " + tokenToUse);
-                    } else {
-                        requestBuilder.header("Authorization",
-                                Credentials.basic(BuildConfig.CLIENT_ID, BuildConfig.CLIENT_SECRET));
-                    }
-                    if (pageSize != null && original.url().queryParameterNames().contains("page")) {
-                        requestBuilder.url(original.url().newBuilder()
-                                .addQueryParameter("per_page", String.valueOf(pageSize))
-                                .build());
-                    }
-                    if (original.header("Accept") == null) {
-                        final String header;
-                        if (acceptHeader != null) {
-                            header = acceptHeader;
-                        } else {
-                            header = DEFAULT_HEADER_ACCEPT;
-                        }
-                        requestBuilder.addHeader("Accept", header);
-                    }
-
-                    return chain.proceed(requestBuilder.build());
-                });
+    /**
+     * Returns a service which only returns responses from the HTTP cache, even if they
+     * are stale. If there's no cached response, requests fail with HTTP status 504.
+     */
+    public static <S> S getCacheOnly(Class<S> serviceClass, Integer pageSize) {
+        return get(serviceClass, false, null, null, pageSize,
+                RateLimitScheduler.Priority.FOREGROUND, true, false);
+    }
 
-        if (BuildConfig.DEBUG) {
-            clientBuilder.addInterceptor(LOGGING_INTERCEPTOR);
-            clientBuilder.addInterceptor(CACHE_STATUS_INTERCEPTOR);
+    /**
+     * Returns a service which decodes the users and repositories embedded in its responses
+     * with only the fields needed for showing them in lists, see
+     * {@link SlimModelConverterFactory}. Meant for list endpoints like notifications or
+     * events, whose items each embed a full repository or user object.
+     */
+    public static <S> S getWithSlimModels(Class<S> serviceClass, boolean bypassCache,
+            String acceptHeader, Integer pageSize, RateLimitScheduler.Priority priority) {
+        return get(serviceClass, bypassCache, acceptHeader, null, pageSize, priority,
+                false, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> S get(Class<S> serviceClass, boolean bypassCache, String acceptHeader,
+            String token, Integer pageSize, RateLimitScheduler.Priority priority,
+            boolean cacheOnly, boolean slimModels) {
+        ServiceVariants variants = sServices.get(serviceClass);
+        if (variants == null) {
+            variants = new ServiceVariants();
+            ServiceVariants existing = sServices.putIfAbsent(serviceClass, variants);
+            if (existing != null) {
+                variants = existing;
+            }
+        }
+
+        int index = cacheOnly || slimModels
+                ? -1 : getCommonVariantIndex(bypassCache, acceptHeader, token, pageSize, priority);
+        if (index >= 0) {
+            Object service = variants.mCommonVariants.get(index);
+            if (service == null) {
+                service = createService(serviceClass, new RequestOptions(bypassCache,
+                        acceptHeader, token, pageSize, priority, false, false));
+                if (!variants.mCommonVariants.compareAndSet(index, null, service)) {
+                    service = variants.mCommonVariants.get(index);
+                }
+            }
+            return (S) service;
         }
-        if (bypassCache) {
-            clientBuilder.addInterceptor(CACHE_BYPASS_INTERCEPTOR);
+
+        RequestOptions options = new RequestOptions(bypassCache, acceptHeader, token,
+                pageSize, priority, cacheOnly, slimModels);
+        Object service = variants.mOtherVariants.get(options);
+        if (service == null) {
+            service = createService(serviceClass, options);
+            Object existing = variants.mOtherVariants.putIfAbsent(options, service);
+            if (existing != null) {
+                service = existing;
+            }
+        }
+        return (S) service;
+    }
+
+    private static int getCommonVariantIndex(boolean bypassCache, String acceptHeader,
+            String token, Integer pageSize, RateLimitScheduler.Priority priority) {
+        if (acceptHeader != null || token != null
+                || priority != RateLimitScheduler.Priority.FOREGROUND) {
+            return -1;
+        }
+        final int pageSizeIndex;
+        if (pageSize == null) {
+            pageSizeIndex = 0;
+        } else if (pageSize == ApiHelpers.MAX_PAGE_SIZE) {
+            pageSizeIndex = 1;
+        } else {
+            return -1;
         }
+        return pageSizeIndex * 2 + (bypassCache ? 1 : 0);
+    }
+
+    private static <S> S createService(Class<S> serviceClass, RequestOptions options) {
+        // All services share the same client, the options are passed to
+        // REQUEST_OPTIONS_INTERCEPTOR by tagging the requests
+        Call.Factory callFactory = request -> sApiHttpClient.newCall(request.newBuilder()
+                .tag(RequestOptions.class, options)
+                .tag(RateLimitScheduler.Priority.class, options.priority)
+                .build());
 
-        Retrofit retrofit = RETROFIT_BUILDER
+        Retrofit retrofit = new Retrofit.Builder()
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .addConverterFactory(new StringResponseConverterFactory())
+                .addConverterFactory(new ByteArrayResponseConverterFactory())
+                .addConverterFactory(options.slimModels
+                        ? SlimModelConverterFactory.create()
+                        : MoshiConverterFactory.create(ServiceGenerator.moshi))
                 .baseUrl("https://api.github.com")
-                .client(clientBuilder.build())
+                .callFactory(callFactory)
                 .build();
         return retrofit.create(serviceClass);
     }
 
     public static OkHttpClient.Builder getHttpClientBuilder() {
-        return sApiHttpClient.newBuilder();
+        return sBaseHttpClient.newBuilder();
+    }
+
+    public static RequestCoalescingInterceptor getRequestCoalescer() {
+        return REQUEST_COALESCING_INTERCEPTOR;
+    }
+
+    public static RateLimitScheduler getRateLimitScheduler() {
+        return RATE_LIMIT_SCHEDULER;
+    }
+
+    public static NetworkMetrics getNetworkMetrics() {
+        return NETWORK_METRICS;
+    }
+
+    /**
+     * Controls whether {@link #ACCEPT_RAW} and {@link #ACCEPT_HTML} are honored. If disabled,
+     * services using them send the default Accept header instead. Only meant for measuring
+     * their effect in debug builds.
+     */
+    public static void setBodyMediaTypesEnabled(boolean enabled) {
+        sBodyMediaTypesEnabled = enabled;
     }
 
     public static OkHttpClient getImageHttpClient() {
@@ -209,11 +383,30 @@ public class ServiceFactory {
 
     static void initClient(Context context) {
         int twentyMB = 20 * 1024 * 1024;
-        sApiHttpClient = new OkHttpClient.Builder()
+        sBaseHttpClient = new OkHttpClient.Builder()
                 .cache(new Cache(new File(context.getCacheDir(), "api-http"), twentyMB))
+                .eventListenerFactory(NETWORK_METRICS)
                 .build();
-        sImageHttpClient = sApiHttpClient.newBuilder()
+
+        // Clients derived via newBuilder() share dispatcher and connection pool
+        OkHttpClient.Builder apiClientBuilder = sBaseHttpClient.newBuilder()
+                .addInterceptor(PAGINATION_INTERCEPTOR)
+                .addNetworkInterceptor(ETAG_WORKAROUND_INTERCEPTOR)
+                .addNetworkInterceptor(CACHE_MAX_AGE_INTERCEPTOR)
+                .addInterceptor(REQUEST_OPTIONS_INTERCEPTOR);
+        if (BuildConfig.DEBUG) {
+            apiClientBuilder.addInterceptor(LOGGING_INTERCEPTOR);
+            apiClientBuilder.addInterceptor(CACHE_STATUS_INTERCEPTOR);
+        }
+        // needs to come after the interceptors modifying the request headers. Only requests
+        // the rate limit scheduler let through may be shared, otherwise an urgent request
+        // could end up waiting for an identical one of low priority that is held back.
+        apiClientBuilder.addInterceptor(RATE_LIMIT_SCHEDULER);
+        apiClientBuilder.addInterceptor(REQUEST_COALESCING_INTERCEPTOR);
+        sApiHttpClient = apiClientBuilder.build();
+
+        sImageHttpClient = sBaseHttpClient.newBuilder()
                 .cache(new Cache(new File(context.getCacheDir(), "image-http"), twentyMB))
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -399,13 +399,24 @@ public class IssueActivity extends BaseActivity implements
     }
 
     private void loadIssue(boolean force) {
-        IssueService service = ServiceFactory.get(IssueService.class, force);
-        service.getIssue(mRepoOwner, mRepoName, mIssueNumber)
-                .map(ApiHelpers::throwOnFailure)
-                .compose(makeLoaderSingle(ID_LOADER_ISSUE, force))
+        ApiHelpers.staleWhileRevalidate(IssueService.class, !force, force,
+                        service -> service.getIssue(mRepoOwner, mRepoName, mIssueNumber))
+                .compose(makeLoaderObservable(ID_LOADER_ISSUE, force))
                 .subscribe(result -> {
+                    boolean wasShown = mIssue != null && mFragment != null;
                     mIssue = result;
-                    showUiIfDone();
+                    if (wasShown) {
+                        // Cached data was shown before, update it in place to keep
+                        // the loaded timeline and any comment being written
+                        mFragment.updateIssue(result);
+                        updateHeader();
+                        updateFabVisibility();
+                        if (mEditFab != null) {
+                            mEditFab.setState(mIssue.state());
+                        }
+                    } else {
+                        showUiIfDone();
+                    }
                     supportInvalidateOptionsMenu();
                 }, this::handleLoadFailure);
     }
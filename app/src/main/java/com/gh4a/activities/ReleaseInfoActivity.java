@@ -327,7 +327,8 @@ public class ReleaseInfoActivity extends BaseActivity implements
     }
 
     private void loadRelease(boolean force) {
-        RepositoryReleaseService service = ServiceFactory.get(RepositoryReleaseService.class, force);
+        RepositoryReleaseService service = ServiceFactory.get(RepositoryReleaseService.class,
+                force, ServiceFactory.ACCEPT_HTML, null, null);
 
         Single<Response<Release>> releaseSingle;
         if (mTagName != null) {
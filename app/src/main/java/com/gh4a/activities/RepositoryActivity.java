@@ -121,7 +121,7 @@ public class RepositoryActivity extends BaseFragmentPagerActivity implements
 
         setContentShown(false);
 
-        loadRepository();
+        loadRepository(false);
     }
 
     @Override
@@ -244,7 +244,7 @@ public class RepositoryActivity extends BaseFragmentPagerActivity implements
         clearRefDependentFragments();
         setContentShown(false);
         invalidateTabs();
-        loadRepository();
+        loadRepository(true);
         super.onRefresh();
     }
 
@@ -355,15 +355,19 @@ public class RepositoryActivity extends BaseFragmentPagerActivity implements
         mCommitListFragment = null;
     }
 
-    private void loadRepository() {
+    private void loadRepository(boolean force) {
         // We always skip the cache in this case, since the repository endpoint incorrectly returns the
         // same ETag even if some fields are changed (like the open issues count and the watchers count)
         boolean skipCache = true;
-        RepositoryService service = ServiceFactory.get(RepositoryService.class, skipCache);
-        service.getRepository(mRepoOwner, mRepoName)
-                .map(ApiHelpers::throwOnFailure)
-                .compose(makeLoaderSingle(ID_LOADER_REPO, skipCache))
+        ApiHelpers.staleWhileRevalidate(RepositoryService.class, !force, skipCache,
+                        service -> service.getRepository(mRepoOwner, mRepoName))
+                .compose(makeLoaderObservable(ID_LOADER_REPO, skipCache))
                 .subscribe(result -> {
+                    if (mRepository != null && mRepositoryFragment != null) {
+                        // Cached data was shown before, update the overview in place to
+                        // keep the README and the other data it already loaded
+                        mRepositoryFragment.updateRepository(result);
+                    }
                     mRepository = result;
                     updateTitle();
                     invalidateTabs();
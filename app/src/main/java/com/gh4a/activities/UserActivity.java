@@ -12,7 +12,6 @@ import android.view.MenuItem;
 
 import com.gh4a.BaseFragmentPagerActivity;
 import com.gh4a.R;
-import com.gh4a.ServiceFactory;
 import com.gh4a.db.BookmarksProvider;
 import com.gh4a.fragment.PublicEventListFragment;
 import com.gh4a.fragment.UserFragment;
@@ -113,6 +112,11 @@ public class UserActivity extends BaseFragmentPagerActivity {
         }
     }
 
+    @Override
+    protected boolean fragmentNeedsRefresh(Fragment object) {
+        return object instanceof UserFragment && mUserFragment == null;
+    }
+
     @Override
     public boolean displayDetachAction() {
         return true;
@@ -174,11 +178,14 @@ public class UserActivity extends BaseFragmentPagerActivity {
     }
 
     private void loadUser(boolean force) {
-        UserService service = ServiceFactory.get(UserService.class, force);
-        service.getUser(mUserLogin)
-                .map(ApiHelpers::throwOnFailure)
-                .compose(makeLoaderSingle(ID_LOADER_USER, force))
+        ApiHelpers.staleWhileRevalidate(UserService.class, !force, force,
+                        service -> service.getUser(mUserLogin))
+                .compose(makeLoaderObservable(ID_LOADER_USER, force))
                 .subscribe(result -> {
+                    if (mUser != null) {
+                        // Cached data was shown before, make sure to update the overview
+                        mUserFragment = null;
+                    }
                     mUser = result;
                     invalidateTabs();
                     setContentShown(true);
@@ -18,6 +18,7 @@ package com.gh4a.adapter;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Typeface;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -99,6 +100,12 @@ public class CommitAdapter extends RootAdapter<Commit, CommitAdapter.ViewHolder>
         }
     }
 
+    @NonNull
+    @Override
+    protected Object getItemKey(Commit commit) {
+        return commit.sha();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
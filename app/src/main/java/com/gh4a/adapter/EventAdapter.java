@@ -20,6 +20,7 @@ import android.content.Intent;
 import android.content.res.Resources;
 import android.graphics.Typeface;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.SpannableStringBuilder;
@@ -587,6 +588,12 @@ public class EventAdapter extends RootAdapter<GitHubEvent, EventAdapter.EventVie
         return mContext.getString(R.string.deleted);
     }
 
+    @NonNull
+    @Override
+    protected Object getItemKey(GitHubEvent event) {
+        return event.id();
+    }
+
     /**
      * The Class ViewHolder.
      */
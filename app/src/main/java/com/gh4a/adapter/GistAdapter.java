@@ -16,6 +16,7 @@
 package com.gh4a.adapter;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -64,6 +65,12 @@ public class GistAdapter extends RootAdapter<Gist, GistAdapter.ViewHolder> {
         holder.tvPrivate.setVisibility(gist.isPublic() ? View.GONE : View.VISIBLE);
     }
 
+    @NonNull
+    @Override
+    protected Object getItemKey(Gist gist) {
+        return gist.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
@@ -17,6 +17,7 @@ package com.gh4a.adapter;
 
 import android.content.Context;
 import android.content.Intent;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -85,6 +86,12 @@ public class IssueAdapter extends RootAdapter<Issue, IssueAdapter.ViewHolder> {
         }
     }
 
+    @NonNull
+    @Override
+    protected Object getItemKey(Issue issue) {
+        return issue.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
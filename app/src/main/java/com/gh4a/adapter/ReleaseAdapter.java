@@ -1,6 +1,7 @@
 package com.gh4a.adapter;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -59,6 +60,12 @@ public class ReleaseAdapter extends RootAdapter<Release, ReleaseAdapter.ViewHold
         return mContext.getString(R.string.release_type_final);
     }
 
+    @NonNull
+    @Override
+    protected Object getItemKey(Release release) {
+        return release.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
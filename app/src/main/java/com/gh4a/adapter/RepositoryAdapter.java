@@ -16,6 +16,7 @@
 package com.gh4a.adapter;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.format.Formatter;
 import android.view.LayoutInflater;
@@ -72,6 +73,12 @@ public class RepositoryAdapter extends RootAdapter<Repository, RepositoryAdapter
         return name.contains(lcFilter);
     }
 
+    @NonNull
+    @Override
+    protected Object getItemKey(Repository repository) {
+        return repository.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener,
             View.OnTouchListener {
         private ViewHolder(View view) {
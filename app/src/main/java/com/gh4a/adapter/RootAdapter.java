@@ -16,7 +16,10 @@
 package com.gh4a.adapter;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -28,6 +31,7 @@ import android.widget.Filterable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * The Root adapter.
@@ -67,10 +71,13 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
     private OnScrolledToFooterListener mFooterListener;
     private int mHighlightPosition = -1;
     private boolean mHolderCreated = false;
+    private CharSequence mFilterConstraint;
+    private int mPlaceholderHeight;
 
     private static final int VIEW_TYPE_HEADER = 0;
     private static final int VIEW_TYPE_FOOTER = 1;
     private static final int VIEW_TYPE_ITEM = 2;
+    private static final int VIEW_TYPE_PLACEHOLDER = -1;
 
     protected static final int CUSTOM_VIEW_TYPE_START = VIEW_TYPE_ITEM;
 
@@ -84,7 +91,7 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
             } else {
                 final ArrayList<T> filtered = new ArrayList<>();
                 for (T object : mUnfilteredObjects) {
-                    if (isFiltered(constraint, object)) {
+                    if (object != null && isFiltered(constraint, object)) {
                         filtered.add(object);
                     }
                 }
@@ -97,6 +104,7 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         @SuppressWarnings("unchecked")
         @Override
         protected void publishResults(CharSequence constraint, FilterResults results) {
+            mFilterConstraint = constraint;
             mObjects = (List<T>) results.values;
             notifyDataSetChanged();
         }
@@ -161,7 +169,11 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         } else if (mFooterView != null && position == itemStart + mObjects.size()) {
             return VIEW_TYPE_FOOTER;
         } else {
-            int viewType = getItemViewType(getItem(position - itemStart));
+            T item = getItem(position - itemStart);
+            if (item == null) {
+                return VIEW_TYPE_PLACEHOLDER;
+            }
+            int viewType = getItemViewType(item);
             assert viewType >= CUSTOM_VIEW_TYPE_START;
             return viewType;
         }
@@ -171,12 +183,24 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         return mObjects.size();
     }
 
+    /**
+     * @return Item at the given position, or null if the position holds a placeholder
+     */
     public T getItem(int position) {
         return mObjects.get(position);
     }
 
     public T getItemFromAdapterPosition(int position) {
-        return mObjects.get(position - (mHeaderView != null ? 1 : 0));
+        return mObjects.get(position - getHeaderCount());
+    }
+
+    /**
+     * @return Position of the item at the given adapter position,
+     *         or -1 if the adapter position belongs to the header or footer
+     */
+    public int getItemPosition(int adapterPosition) {
+        int position = adapterPosition - getHeaderCount();
+        return position >= 0 && position < mObjects.size() ? position : -1;
     }
 
     /**
@@ -190,10 +214,13 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
     }
 
     public void addAll(Collection<T> objects) {
-        if (objects != null) {
+        if (objects != null && !objects.isEmpty()) {
+            int start = mObjects.size();
             mUnfilteredObjects.addAll(objects);
-            mObjects.addAll(objects);
-            notifyDataSetChanged();
+            if (mObjects != mUnfilteredObjects) {
+                mObjects.addAll(objects);
+            }
+            notifyItemRangeInserted(getHeaderCount() + start, mObjects.size() - start);
         }
     }
 
@@ -203,6 +230,128 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         notifyDataSetChanged();
     }
 
+    /**
+     * @return Snapshot of all (unfiltered) objects
+     */
+    public List<T> getItems() {
+        return new ArrayList<>(mUnfilteredObjects);
+    }
+
+    /**
+     * Calculates the updates needed for going from one list of objects to another.
+     * Items are matched by {@link #getItemKey(Object)} and compared using equals().
+     * This doesn't access the adapter state, so it can (and for big lists, should) be
+     * called on a background thread.
+     */
+    public DiffUtil.DiffResult calculateDiff(List<T> oldItems, List<T> newItems) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                T oldItem = oldItems.get(oldItemPosition);
+                T newItem = newItems.get(newItemPosition);
+                if (oldItem == null || newItem == null) {
+                    // placeholders
+                    return oldItem == newItem;
+                }
+                return getItemKey(oldItem).equals(getItemKey(newItem));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return Objects.equals(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+            }
+        });
+    }
+
+    /**
+     * Replaces all objects by the given ones.
+     *
+     * @param diff Result of {@link #calculateDiff(List, List)} from the current objects
+     *             to the new ones
+     */
+    public void setItems(List<T> objects, DiffUtil.DiffResult diff) {
+        mUnfilteredObjects.clear();
+        mUnfilteredObjects.addAll(objects);
+        if (isFiltering()) {
+            // The diff doesn't apply to the filtered objects
+            mFilter.filter(mFilterConstraint);
+            return;
+        }
+        if (mObjects != mUnfilteredObjects) {
+            mObjects.clear();
+            mObjects.addAll(objects);
+        }
+        final int offset = getHeaderCount();
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(offset + position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(offset + position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(offset + fromPosition, offset + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notifyItemRangeChanged(offset + position, count, payload);
+            }
+        });
+    }
+
+    /**
+     * Replaces the items starting at the given position by placeholders, which are shown
+     * as empty rows of the height set by {@link #setPlaceholderHeight(int)}. Must not be
+     * called while a filter is applied.
+     */
+    public void clearRange(int start, int count) {
+        for (int i = start; i < start + count; i++) {
+            mUnfilteredObjects.set(i, null);
+            if (mObjects != mUnfilteredObjects) {
+                mObjects.set(i, null);
+            }
+        }
+        notifyItemRangeChanged(getHeaderCount() + start, count);
+    }
+
+    /**
+     * Replaces the items starting at the given position, e.g. for filling in placeholders.
+     * Must not be called while a filter is applied.
+     */
+    public void replaceRange(int start, List<T> objects) {
+        for (int i = 0; i < objects.size(); i++) {
+            mUnfilteredObjects.set(start + i, objects.get(i));
+            if (mObjects != mUnfilteredObjects) {
+                mObjects.set(start + i, objects.get(i));
+            }
+        }
+        notifyItemRangeChanged(getHeaderCount() + start, objects.size());
+    }
+
+    public boolean isFiltering() {
+        return !TextUtils.isEmpty(mFilterConstraint);
+    }
+
+    public void setPlaceholderHeight(int height) {
+        mPlaceholderHeight = height;
+    }
+
     public void clear() {
         mUnfilteredObjects.clear();
         mObjects.clear();
@@ -222,6 +371,8 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
                 return new HeaderViewHolder(mHeaderView);
             case VIEW_TYPE_FOOTER:
                 return new FooterViewHolder(mFooterView);
+            case VIEW_TYPE_PLACEHOLDER:
+                return new PlaceholderViewHolder(new View(parent.getContext()));
             default:
                 RecyclerView.ViewHolder holder = onCreateViewHolder(mInflater, parent, viewType);
                 if (mItemClickListener != null) {
@@ -245,6 +396,9 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
             if (mFooterListener != null) {
                 mFooterListener.onScrolledToFooter();
             }
+        } else if (holder instanceof PlaceholderViewHolder) {
+            holder.itemView.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, mPlaceholderHeight));
         } else if (!(holder instanceof HeaderViewHolder)) {
             onBindViewHolder((VH) holder, getItemFromAdapterPosition(position));
             if (position == mHighlightPosition) {
@@ -293,6 +447,20 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         return VIEW_TYPE_ITEM;
     }
 
+    /**
+     * @return Key identifying the given item across reloads, e.g. its ID. Items with equal
+     *         keys are considered to be the same item, even if their contents differ.
+     *         Must be safe to call on a background thread.
+     */
+    @NonNull
+    protected Object getItemKey(T item) {
+        return item;
+    }
+
+    private int getHeaderCount() {
+        return mHeaderView != null ? 1 : 0;
+    }
+
     @Override
     public Filter getFilter() {
         return mFilter;
@@ -316,4 +484,9 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
             super(v);
         }
     }
+    private static class PlaceholderViewHolder extends RecyclerView.ViewHolder {
+        public PlaceholderViewHolder(View v) {
+            super(v);
+        }
+    }
 }
\ No newline at end of file
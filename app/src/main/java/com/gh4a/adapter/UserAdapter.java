@@ -16,6 +16,7 @@
 package com.gh4a.adapter;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -60,6 +61,12 @@ public class UserAdapter extends RootAdapter<User, UserAdapter.ViewHolder> {
         }
     }
 
+    @NonNull
+    @Override
+    protected Object getItemKey(User user) {
+        return user.login();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
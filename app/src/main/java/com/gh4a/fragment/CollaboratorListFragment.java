@@ -28,11 +28,11 @@ public class CollaboratorListFragment extends PagedDataBaseFragment<User> implem
     }
 
     @Override
-    protected Single<Response<Page<User>>> loadPage(int page, boolean bypassCache) {
+    protected Single<Response<Page<User>>> loadPage(int page, int pageSize, boolean bypassCache) {
         String owner = getArguments().getString("owner");
         String repo = getArguments().getString("repo");
         final RepositoryCollaboratorService service =
-                ServiceFactory.get(RepositoryCollaboratorService.class, bypassCache);
+                ServiceFactory.get(RepositoryCollaboratorService.class, bypassCache, pageSize);
         return service.getCollaborators(owner, repo, page);
     }
 
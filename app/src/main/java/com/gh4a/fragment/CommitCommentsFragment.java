@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
 
 import static java.util.stream.Collectors.toCollection;
@@ -214,16 +215,24 @@ public class CommitCommentsFragment extends ListDataBaseFragment<GitComment> imp
         mBottomSheet.setMentionUsers(users);
 
         if (mInitialComment != null) {
+            // data may only be the last chunk of items added to the adapter
+            int offset = adapter.getCount() - data.size();
             for (int i = 0; i < data.size(); i++) {
                 if (mInitialComment.matches(data.get(i).id(), data.get(i).createdAt())) {
-                    scrollToAndHighlightPosition(i);
+                    scrollToAndHighlightPosition(offset + i);
+                    mInitialComment = null;
                     break;
                 }
             }
-            mInitialComment = null;
         }
     }
 
+    @Override
+    protected void onAddDataFinished(RootAdapter<GitComment, ?> adapter) {
+        super.onAddDataFinished(adapter);
+        mInitialComment = null;
+    }
+
     @Override
     protected int getEmptyTextResId() {
         return R.string.no_comments_found;
@@ -231,11 +240,19 @@ public class CommitCommentsFragment extends ListDataBaseFragment<GitComment> imp
 
     @Override
     protected Single<List<GitComment>> onCreateDataSingle(boolean bypassCache) {
+        return onCreateDataObservable(bypassCache)
+                .flatMapIterable(comments -> comments)
+                .toList();
+    }
+
+    @Override
+    protected Observable<List<GitComment>> onCreateDataObservable(boolean bypassCache) {
         var service = ServiceFactory.getForFullPagedLists(RepositoryCommentService.class, bypassCache);
 
         return ApiHelpers.PageIterator
-                .toSingle(page -> service.getCommitComments(mRepoOwner, mRepoName, mObjectSha, page))
-                .compose(RxUtils.filter(comment -> comment.position() == null));
+                .toObservable(page -> service.getCommitComments(mRepoOwner, mRepoName, mObjectSha, page))
+                .concatMapSingle(comments -> Single.just(comments)
+                        .compose(RxUtils.filter(comment -> comment.position() == null)));
     }
 
     @Override
@@ -144,7 +144,7 @@ public class CommitListFragment extends PagedDataBaseFragment<Commit> implements
         if (item.getItemId() == R.id.follow_renames) {
             mFollowRenames = !mFollowRenames;
             item.setChecked(mFollowRenames);
-            onRefresh();
+            reload();
             return true;
         }
 
@@ -210,9 +210,9 @@ public class CommitListFragment extends PagedDataBaseFragment<Commit> implements
     }
 
     @Override
-    protected Single<Response<Page<Commit>>> loadPage(int page, boolean bypassCache) {
+    protected Single<Response<Page<Commit>>> loadPage(int page, int pageSize, boolean bypassCache) {
         final RepositoryCommitService service =
-                ServiceFactory.get(RepositoryCommitService.class, bypassCache);
+                ServiceFactory.get(RepositoryCommitService.class, bypassCache, pageSize);
         final String ref = mMostRecentRenameFollowData != null ? mMostRecentRenameFollowData.commitSha : mRef;
         final String filePath = mMostRecentRenameFollowData != null ? mMostRecentRenameFollowData.fileName : mFilePath;
 
@@ -251,6 +251,12 @@ public class CommitListFragment extends PagedDataBaseFragment<Commit> implements
                 });
     }
 
+    @Override
+    protected boolean supportsIncrementalRefresh() {
+        // Following renames depends on the previously loaded pages
+        return false;
+    }
+
     @Override
     protected void resetSubject() {
         super.resetSubject();
@@ -30,10 +30,11 @@ public class ContributorListFragment extends PagedDataBaseFragment<User> impleme
     }
 
     @Override
-    protected Single<Response<Page<User>>> loadPage(int page, boolean bypassCache) {
+    protected Single<Response<Page<User>>> loadPage(int page, int pageSize, boolean bypassCache) {
         String repoOwner = getArguments().getString("owner");
         String repoName = getArguments().getString("repo");
-        RepositoryService service = ServiceFactory.get(RepositoryService.class, bypassCache);
+        RepositoryService service =
+                ServiceFactory.get(RepositoryService.class, bypassCache, pageSize);
         return service.getContributors(repoOwner, repoName, page);
     }
 
@@ -503,8 +503,9 @@ public abstract class EventListFragment extends PagedDataBaseFragment<GitHubEven
     }
 
     @Override
-    protected Single<Response<Page<GitHubEvent>>> loadPage(int page, boolean bypassCache) {
-        return loadRawPage(page, bypassCache).flatMap(response -> {
+    protected Single<Response<Page<GitHubEvent>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
+        return loadRawPage(page, pageSize, bypassCache).flatMap(response -> {
             if (!response.isSuccessful()) {
                 return Single.just(response);
             }
@@ -636,7 +637,8 @@ public abstract class EventListFragment extends PagedDataBaseFragment<GitHubEven
         return Pair.create(parts[0], parts[1]);
     }
 
-    protected abstract Single<Response<Page<GitHubEvent>>> loadRawPage(int page, boolean bypassCache);
+    protected abstract Single<Response<Page<GitHubEvent>>> loadRawPage(int page, int pageSize,
+            boolean bypassCache);
 
     private record PrIdentifier(GitHubEvent.RepoIdentifier repo, int prNumber) {}
 
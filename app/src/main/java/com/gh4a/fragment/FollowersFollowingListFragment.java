@@ -76,6 +76,11 @@ public class FollowersFollowingListFragment extends PagedDataBaseFragment<User>
         return mShowFollowers ? R.string.no_followers_found : R.string.no_following_found;
     }
 
+    @Override
+    protected boolean supportsWindowedPaging() {
+        return true;
+    }
+
     @Override
     public void onItemClick(User user) {
         Intent intent = UserActivity.makeIntent(getActivity(), user);
@@ -120,8 +125,9 @@ public class FollowersFollowingListFragment extends PagedDataBaseFragment<User>
     }
 
     @Override
-    protected Single<Response<Page<User>>> loadPage(int page, boolean bypassCache) {
-        final UserFollowerService service = ServiceFactory.get(UserFollowerService.class, bypassCache);
+    protected Single<Response<Page<User>>> loadPage(int page, int pageSize, boolean bypassCache) {
+        final UserFollowerService service =
+                ServiceFactory.get(UserFollowerService.class, bypassCache, pageSize);
         return mShowFollowers
                 ? service.getFollowers(mLogin, page)
                 : service.getFollowing(mLogin, page);
@@ -62,14 +62,21 @@ public class ForkListFragment extends PagedDataBaseFragment<Repository> {
         return R.string.no_forks_found;
     }
 
+    @Override
+    protected boolean supportsRandomAccessPaging() {
+        return true;
+    }
+
     @Override
     public void onItemClick(Repository repo) {
         startActivity(RepositoryActivity.makeIntent(getActivity(), repo));
     }
 
     @Override
-    protected Single<Response<Page<Repository>>> loadPage(int page, boolean bypassCache) {
-        final RepositoryForkService service = ServiceFactory.get(RepositoryForkService.class, bypassCache);
+    protected Single<Response<Page<Repository>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
+        final RepositoryForkService service =
+                ServiceFactory.get(RepositoryForkService.class, bypassCache, pageSize);
         return service.getForks(mRepoOwner, mRepoName, page);
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import com.meisolsson.githubsdk.service.issues.IssueTimelineService;
 
 import java.util.List;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 import retrofit2.Response;
@@ -71,13 +72,22 @@ public class IssueFragment extends IssueFragmentBase {
 
     @Override
     protected Single<List<TimelineItem>> onCreateDataSingle(boolean bypassCache) {
+        return onCreateDataObservable(bypassCache)
+                .flatMapIterable(items -> items)
+                .toList();
+    }
+
+    @Override
+    protected Observable<List<TimelineItem>> onCreateDataObservable(boolean bypassCache) {
         final int issueNumber = mIssue.number();
         var timelineService = ServiceFactory.getForFullPagedLists(IssueTimelineService.class, bypassCache);
 
         return ApiHelpers.PageIterator
-                .toSingle(page -> timelineService.getTimeline(mRepoOwner, mRepoName, issueNumber, page))
-                .compose(RxUtils.filter(event -> INTERESTING_EVENTS.contains(event.event())))
-                .compose(RxUtils.mapList(TimelineItem::fromIssueEvent))
+                .toObservable(page -> timelineService.getTimeline(mRepoOwner, mRepoName, issueNumber, page),
+                        ApiHelpers.MAX_PAGE_CONCURRENCY)
+                .concatMapSingle(events -> Single.just(events)
+                        .compose(RxUtils.filter(event -> INTERESTING_EVENTS.contains(event.event())))
+                        .compose(RxUtils.mapList(TimelineItem::fromIssueEvent)))
                 .subscribeOn(Schedulers.io());
     }
 
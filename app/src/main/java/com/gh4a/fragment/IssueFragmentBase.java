@@ -64,6 +64,7 @@ import com.meisolsson.githubsdk.service.reactions.ReactionService;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -286,6 +287,28 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Shows updated issue data (e.g. after cached data was revalidated) without reloading
+     * the timeline or touching the comment editor.
+     */
+    public void updateIssue(Issue issue) {
+        boolean bodyChanged = !Objects.equals(mIssue.bodyHtml(), issue.bodyHtml());
+        mIssue = issue;
+        // Make sure a recreated fragment doesn't fall back to the old data
+        getArguments().putParcelable("issue", issue);
+        if (mListHeaderView == null) {
+            return;
+        }
+        if (bodyChanged) {
+            // The image getter would keep showing the description it encoded before
+            mImageGetter.clearHtmlCache();
+        }
+        fillData();
+        fillLabels(mIssue.labels());
+        updateCommentLockState();
+        getActivity().invalidateOptionsMenu();
+    }
+
     public void reloadEvents(boolean alsoClearCaches) {
         if (mAdapter != null && !alsoClearCaches) {
             // Don't clear adapter's cache, we're only interested in the new event
@@ -306,6 +329,8 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
     protected void onAddData(RootAdapter<TimelineItem, ?> adapter, List<TimelineItem> data) {
         super.onAddData(adapter, data);
         if (mInitialComment != null) {
+            // data may only be the last chunk of items added to the adapter
+            int offset = adapter.getCount() - data.size();
             for (int i = 0; i < data.size(); i++) {
                 TimelineItem item = data.get(i);
                 long itemId = 0;
@@ -315,14 +340,20 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
                     itemId = ((TimelineItem.TimelineReview) item).review().id();
                 }
                 if (mInitialComment.matches(itemId, item.getCreatedAt())) {
-                    scrollToAndHighlightPosition(i + 1 /* adjust for header view */);
+                    scrollToAndHighlightPosition(offset + i + 1 /* adjust for header view */);
+                    mInitialComment = null;
                     break;
                 }
             }
-            mInitialComment = null;
         }
 
         updateMentionUsers();
+    }
+
+    @Override
+    protected void onAddDataFinished(RootAdapter<TimelineItem, ?> adapter) {
+        super.onAddDataFinished(adapter);
+        mInitialComment = null;
         removeLoadingIndicator(adapter);
     }
 
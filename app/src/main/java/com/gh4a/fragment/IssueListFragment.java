@@ -23,7 +23,9 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.text.TextUtils;
+import android.util.Pair;
 import android.util.SparseArray;
+import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -37,11 +39,14 @@ import com.gh4a.adapter.RepositoryIssueAdapter;
 import com.gh4a.adapter.RootAdapter;
 import com.gh4a.utils.ActivityResultHelpers;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.DetailPrefetcher;
 import com.gh4a.utils.RxUtils;
 import com.meisolsson.githubsdk.model.Issue;
 import com.meisolsson.githubsdk.model.Page;
 import com.meisolsson.githubsdk.service.search.SearchService;
 
+import java.lang.reflect.Type;
+
 import io.reactivex.Single;
 import retrofit2.Response;
 
@@ -52,6 +57,8 @@ public class IssueListFragment extends PagedDataBaseFragment<Issue> {
     private int mEmptyTextResId;
     private boolean mShowRepository;
     private String mIssueState;
+    private RootAdapter<Issue, ? extends RecyclerView.ViewHolder> mAdapter;
+    private DetailPrefetcher<Issue> mPrefetcher;
 
     private final ActivityResultLauncher<Intent> mIssueLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
@@ -105,6 +112,26 @@ public class IssueListFragment extends PagedDataBaseFragment<Issue> {
         }
     }
 
+    @Override
+    protected void onRecyclerViewInflated(RecyclerView view, LayoutInflater inflater) {
+        super.onRecyclerViewInflated(view, inflater);
+        mPrefetcher = DetailPrefetcher.attach(view, mAdapter, issue -> {
+            Pair<String, String> repoOwnerAndName =
+                    ApiHelpers.extractRepoOwnerAndNameFromIssue(issue);
+            return new DetailPrefetcher.Target(repoOwnerAndName.first, repoOwnerAndName.second,
+                    issue.number(), issue.pullRequest() != null);
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (mPrefetcher != null) {
+            mPrefetcher.detach();
+            mPrefetcher = null;
+        }
+    }
+
     @Override
     public void onItemClick(Issue issue) {
         Intent intent = issue.pullRequest() != null
@@ -115,9 +142,10 @@ public class IssueListFragment extends PagedDataBaseFragment<Issue> {
 
     @Override
     protected RootAdapter<Issue, ? extends RecyclerView.ViewHolder> onCreateAdapter() {
-        return mShowRepository
+        mAdapter = mShowRepository
                 ? new RepositoryIssueAdapter(getActivity())
                 : new IssueAdapter(getActivity());
+        return mAdapter;
     }
 
     @Override
@@ -126,8 +154,21 @@ public class IssueListFragment extends PagedDataBaseFragment<Issue> {
     }
 
     @Override
-    protected Single<Response<Page<Issue>>> loadPage(int page, boolean bypassCache) {
-        final SearchService service = ServiceFactory.get(SearchService.class, bypassCache);
+    protected String getSnapshotKey() {
+        return "issues/" + mQuery + "/" + mSortMode + "/" + mOrder;
+    }
+
+    @Override
+    protected Type getSnapshotItemType() {
+        return Issue.class;
+    }
+
+    @Override
+    protected Single<Response<Page<Issue>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
+        // Issue bodies aren't shown in the list, and the issue screens load their own copy
+        final SearchService service = ServiceFactory.get(SearchService.class, bypassCache,
+                ServiceFactory.ACCEPT_RAW, null, pageSize);
         return service.searchIssues(mQuery, mSortMode, mOrder, page)
                 .compose(RxUtils::searchPageAdapter);
     }
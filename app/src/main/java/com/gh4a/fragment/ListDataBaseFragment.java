@@ -1,19 +1,35 @@
 package com.gh4a.fragment;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import android.os.Bundle;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 
 import com.gh4a.adapter.RootAdapter;
+import com.gh4a.utils.ListSnapshotStore;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 
 public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
+    // Number of items stored in list snapshots
+    private static final int MAX_SNAPSHOT_ITEMS = 300;
+
     private RootAdapter<T, ? extends RecyclerView.ViewHolder> mAdapter;
+    private RecyclerView mRecyclerView;
     private Disposable mSubscription;
+    private Disposable mSnapshotSubscription;
+    // Most recently delivered data as list of chunks, null while nothing was loaded yet
+    private List<List<T>> mLoadedData;
+    // Chunks currently shown by the adapter, null if it shows anything else
+    private List<List<T>> mShownChunks;
 
     @Override
     public void onViewCreated(View view, Bundle savedInstanceState) {
@@ -21,6 +37,20 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
 
         setContentShown(false);
         loadData(false);
+        loadSnapshot();
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        saveSnapshot();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelSnapshotLoad();
+        mRecyclerView = null;
     }
 
     @Override
@@ -29,6 +59,9 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
         if (mSubscription != null) {
             mSubscription.dispose();
         }
+        cancelSnapshotLoad();
+        mLoadedData = null;
+        mShownChunks = null;
         loadData(true);
         if (mAdapter != null) {
             mAdapter.clear();
@@ -42,13 +75,14 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
 
     protected void onAddData(RootAdapter<T, ?> adapter, List<T> data) {
         adapter.addAll(data);
-        adapter.notifyDataSetChanged();
     }
 
     @Override
     protected void onRecyclerViewInflated(RecyclerView view, LayoutInflater inflater) {
         super.onRecyclerViewInflated(view, inflater);
+        mRecyclerView = view;
         mAdapter = onCreateAdapter();
+        mShownChunks = null;
         view.setAdapter(mAdapter);
         updateEmptyState();
     }
@@ -60,8 +94,23 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
 
     private void loadData(boolean force) {
         List<T> initialData = force ? null : onGetInitialData();
+        Observable<List<T>> dataObservable = initialData != null
+                ? null : onCreateDataObservable(force);
         if (initialData != null) {
             handleNewData(initialData);
+        } else if (dataObservable != null) {
+            // Accumulate the chunks, so that the loader always holds the complete
+            // data loaded so far in case it needs to redeliver it
+            mSubscription = dataObservable
+                    .scan(new ArrayList<List<T>>(), (loaded, chunk) -> {
+                        ArrayList<List<T>> result = new ArrayList<>(loaded);
+                        result.add(chunk);
+                        return result;
+                    })
+                    .skip(1)
+                    .compose(makeLoaderObservable(0, force))
+                    .subscribe(this::handlePartialData, this::handleLoadFailure,
+                            () -> onAddDataFinished(mAdapter));
         } else {
             mSubscription = onCreateDataSingle(force)
                     .compose(makeLoaderSingle(0, force))
@@ -70,13 +119,131 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
     }
 
     private void handleNewData(List<T> result) {
+        mLoadedData = Collections.singletonList(result);
+        mShownChunks = null;
         mAdapter.clear();
         onAddData(mAdapter, result);
+        onAddDataFinished(mAdapter);
+        setContentShown(true);
+        updateEmptyState();
+    }
+
+    private void handlePartialData(List<List<T>> chunks) {
+        mLoadedData = chunks;
+        int shownCount = 0;
+        if (mShownChunks != null && mShownChunks.size() <= chunks.size()
+                && (mShownChunks.isEmpty() || mShownChunks.get(0) == chunks.get(0))) {
+            // only append what we don't know about yet
+            shownCount = mShownChunks.size();
+        } else {
+            mAdapter.clear();
+        }
+        for (int i = shownCount; i < chunks.size(); i++) {
+            onAddData(mAdapter, chunks.get(i));
+        }
+        mShownChunks = chunks;
+        setContentShown(true);
+        updateEmptyState();
+    }
+
+    private void loadSnapshot() {
+        String key = getSnapshotKey();
+        if (key == null) {
+            return;
+        }
+        mSnapshotSubscription = ListSnapshotStore.<T>load(key, getSnapshotItemType())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::applySnapshot, error -> {});
+    }
+
+    private void applySnapshot(ListSnapshotStore.Snapshot<T> snapshot) {
+        mSnapshotSubscription = null;
+        if (mLoadedData != null || mAdapter == null || snapshot.pages.isEmpty()
+                || snapshot.pages.get(0).items == null) {
+            // The actual data was faster
+            return;
+        }
+        // Show the snapshot until the loaded data replaces it. As that keeps the
+        // item positions, the scroll position is kept as well.
+        mShownChunks = null;
+        mAdapter.clear();
+        onAddData(mAdapter, snapshot.pages.get(0).items);
+        onAddDataFinished(mAdapter);
         setContentShown(true);
         updateEmptyState();
+        if (mRecyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) mRecyclerView.getLayoutManager())
+                    .scrollToPositionWithOffset(snapshot.scrollPosition, snapshot.scrollOffset);
+        }
+    }
+
+    private void saveSnapshot() {
+        String key = getSnapshotKey();
+        if (key == null || mLoadedData == null || mRecyclerView == null
+                || !(mRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager lm = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        int scrollPosition = Math.max(0, lm.findFirstVisibleItemPosition());
+        View firstView = lm.findViewByPosition(scrollPosition);
+        int scrollOffset = firstView != null
+                ? firstView.getTop() - mRecyclerView.getPaddingTop() : 0;
+
+        List<T> items = new ArrayList<>();
+        for (List<T> chunk : mLoadedData) {
+            int count = Math.min(chunk.size(), MAX_SNAPSHOT_ITEMS - items.size());
+            items.addAll(chunk.subList(0, count));
+            if (items.size() >= MAX_SNAPSHOT_ITEMS) {
+                break;
+            }
+        }
+        ListSnapshotStore.Page<T> page = new ListSnapshotStore.Page<>(0, items.size(),
+                items.size(), null, null, items);
+        ListSnapshotStore.save(key, getSnapshotItemType(), new ListSnapshotStore.Snapshot<>(
+                Collections.singletonList(page), scrollPosition, scrollOffset));
+    }
+
+    private void cancelSnapshotLoad() {
+        if (mSnapshotSubscription != null) {
+            mSnapshotSubscription.dispose();
+            mSnapshotSubscription = null;
+        }
+    }
+
+    /**
+     * Key under which a snapshot of the list is stored on disk. The snapshot is shown
+     * after a cold start while the list is loaded again. The key must identify the list's
+     * request parameters; return null (the default) if no snapshots should be stored.
+     * Requires {@link #getSnapshotItemType()}.
+     */
+    protected String getSnapshotKey() {
+        return null;
+    }
+
+    /**
+     * Type of the list items, used for storing them in snapshots.
+     */
+    protected Type getSnapshotItemType() {
+        return null;
+    }
+
+    /**
+     * Called after all data was passed to {@link #onAddData(RootAdapter, List)}. When
+     * using {@link #onCreateDataObservable(boolean)}, onAddData may be called multiple
+     * times before this, once for each chunk of new items.
+     */
+    protected void onAddDataFinished(RootAdapter<T, ?> adapter) {
     }
 
     protected abstract Single<List<T>> onCreateDataSingle(boolean bypassCache);
+
+    /**
+     * Override to display data progressively while it's loaded, e.g. page by page.
+     * If this returns non-null, it's used instead of {@link #onCreateDataSingle(boolean)}.
+     */
+    protected Observable<List<T>> onCreateDataObservable(boolean bypassCache) {
+        return null;
+    }
     protected List<T> onGetInitialData() {
         return null;
     }
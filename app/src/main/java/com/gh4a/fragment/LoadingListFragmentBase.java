@@ -67,11 +67,13 @@ public abstract class LoadingListFragmentBase extends LoadingFragmentBase implem
             switch (event.getActionMasked()) {
                 case MotionEvent.ACTION_DOWN:
                     getBaseActivity().setRightDrawerLockedClosed(true);
+                    onFastScrollerDragStateChanged(true);
                     break;
 
                 case MotionEvent.ACTION_UP:
                 case MotionEvent.ACTION_CANCEL:
                     getBaseActivity().setRightDrawerLockedClosed(false);
+                    onFastScrollerDragStateChanged(false);
                     break;
             }
 
@@ -131,6 +133,12 @@ public abstract class LoadingListFragmentBase extends LoadingFragmentBase implem
     protected void onRecyclerViewInflated(RecyclerView view, LayoutInflater inflater) {
     }
 
+    /**
+     * Called when the user starts or stops dragging the fast scroller handle.
+     */
+    protected void onFastScrollerDragStateChanged(boolean dragging) {
+    }
+
     protected void scrollToAndHighlightPosition(final int position) {
         getBaseActivity().collapseAppBar();
         mLayoutManager.scrollToPositionWithOffset(position, 0);
@@ -19,6 +19,7 @@ import com.gh4a.adapter.RootAdapter;
 import com.gh4a.model.NotificationHolder;
 import com.gh4a.resolver.BrowseFilter;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.DetailPrefetcher;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.utils.SingleFactory;
@@ -32,6 +33,8 @@ import com.meisolsson.githubsdk.service.activity.NotificationService;
 
 import java.util.Date;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
@@ -50,6 +53,8 @@ public class NotificationListFragment extends LoadingListFragmentBase implements
     }
 
     private static final int ID_LOADER_NOTIFICATIONS = 0;
+    private static final Pattern SUBJECT_URL_PATTERN =
+            Pattern.compile(".*/repos/([^/]+)/([^/]+)/(?:issues|pulls)/(\\d+)");
 
     private NotificationAdapter mAdapter;
     private Date mNotificationsLoadTime;
@@ -57,6 +62,7 @@ public class NotificationListFragment extends LoadingListFragmentBase implements
     private ParentCallback mCallback;
     private boolean mAll;
     private boolean mParticipating;
+    private DetailPrefetcher<NotificationHolder> mPrefetcher;
 
     public interface ParentCallback {
         void setNotificationsIndicatorVisible(boolean visible);
@@ -114,9 +120,36 @@ public class NotificationListFragment extends LoadingListFragmentBase implements
         mAdapter = new NotificationAdapter(getActivity(), this);
         mAdapter.setOnItemClickListener(this);
         view.setAdapter(mAdapter);
+        mPrefetcher = DetailPrefetcher.attach(view, mAdapter, this::resolvePrefetchTarget);
         updateEmptyState();
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (mPrefetcher != null) {
+            mPrefetcher.detach();
+            mPrefetcher = null;
+        }
+    }
+
+    private DetailPrefetcher.Target resolvePrefetchTarget(NotificationHolder item) {
+        if (item.notification == null || item.notification.subject().url() == null) {
+            return null;
+        }
+        NotificationSubject subject = item.notification.subject();
+        boolean isPullRequest = NotificationAdapter.SUBJECT_PULL_REQUEST.equals(subject.type());
+        if (!isPullRequest && !NotificationAdapter.SUBJECT_ISSUE.equals(subject.type())) {
+            return null;
+        }
+        Matcher matcher = SUBJECT_URL_PATTERN.matcher(subject.url());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new DetailPrefetcher.Target(matcher.group(1), matcher.group(2),
+                Integer.parseInt(matcher.group(3)), isPullRequest);
+    }
+
     @Override
     protected boolean hasDividers() {
         return false;
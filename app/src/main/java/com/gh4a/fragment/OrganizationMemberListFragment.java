@@ -26,10 +26,10 @@ public class OrganizationMemberListFragment extends PagedDataBaseFragment<User>
     }
 
     @Override
-    protected Single<Response<Page<User>>> loadPage(int page, boolean bypassCache) {
+    protected Single<Response<Page<User>>> loadPage(int page, int pageSize, boolean bypassCache) {
         String organization = getArguments().getString("org");
         final OrganizationMemberService service =
-                ServiceFactory.get(OrganizationMemberService.class, bypassCache);
+                ServiceFactory.get(OrganizationMemberService.class, bypassCache, pageSize);
         return service.getMembers(organization, page);
     }
 
@@ -45,6 +45,11 @@ public class OrganizationMemberListFragment extends PagedDataBaseFragment<User>
         return R.string.no_org_members_found;
     }
 
+    @Override
+    protected boolean supportsWindowedPaging() {
+        return true;
+    }
+
     @Override
     public void onItemClick(User item) {
         startActivity(UserActivity.makeIntent(getActivity(), item));
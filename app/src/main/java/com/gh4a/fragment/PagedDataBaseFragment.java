@@ -16,39 +16,148 @@
 package com.gh4a.fragment;
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
 
+import androidx.annotation.NonNull;
 import androidx.loader.app.LoaderManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 
 import com.gh4a.R;
 import com.gh4a.adapter.RootAdapter;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.ListSnapshotStore;
+import com.gh4a.utils.PageSizePolicy;
 import com.gh4a.utils.RxUtils;
 import com.meisolsson.githubsdk.model.Page;
 import com.philosophicalhacker.lib.RxLoader;
 
+import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
 import retrofit2.Response;
 
 public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase implements
         RootAdapter.OnItemClickListener<T>, RootAdapter.OnScrolledToFooterListener {
+    // Row height assumed as long as there are no rows to measure
+    private static final int DEFAULT_ROW_HEIGHT_DP = 64;
+    // Number of pages loaded by scrolling after which we assume the whole list will be read
+    private static final int FOLLOW_UP_LOADS_UNTIL_FULLY_CONSUMED = 2;
+    // Minimum number of remaining rows at which the next page is requested
+    private static final int DEFAULT_PREFETCH_DISTANCE = 10;
+    // Weight of a new sample in the moving average of the scroll velocity
+    private static final float VELOCITY_SMOOTHING_FACTOR = 0.3f;
+    // In windowed paging mode, pages are dropped when all of their items are further away
+    // from the viewport than this, and loaded again when one of them comes closer than
+    // RESTORE_DISTANCE. The gap between both avoids reloading pages back and forth.
+    private static final int EVICT_DISTANCE = 250;
+    private static final int RESTORE_DISTANCE = 100;
+    // Number of items stored in list snapshots, further pages are only stored in windowed
+    // paging mode (without their items)
+    private static final int MAX_SNAPSHOT_ITEMS = 300;
+
     private RootAdapter<T, ? extends RecyclerView.ViewHolder> mAdapter;
+    private RecyclerView mRecyclerView;
     private RxLoader mRxLoader;
+    // Emits the number of items loaded so far whenever the next page should be loaded
     private Subject<Integer> mPageSubject;
-    private Integer mNextPage;
+    private Integer mNextOffset;
+    // Offset of the page currently being loaded because of scrolling
+    private Integer mPendingOffset;
+    // Emits offsets of pending page loads that should be cancelled
+    private final Subject<Integer> mPageCancelSubject = PublishSubject.create();
+    private int mFollowUpLoads;
+    // Scroll velocity towards the end of the list, in pixels per millisecond
+    private float mScrollVelocity;
+    private long mLastScrollTime;
+    private boolean mFastScrollerDragging;
     private View mLoadingView;
     private Disposable mSubscription;
+    // Pending calculation of the adapter updates for changed pages
+    private Disposable mDiffSubscription;
+    private Disposable mSnapshotSubscription;
+    // Pages currently shown in the adapter
+    private final List<PageData<T>> mDisplayedPages = new ArrayList<>();
+    // Evicted pages that are currently being loaded again
+    private final Set<PageData<T>> mRestoringPages = new HashSet<>();
+    private final CompositeDisposable mRestoreSubscriptions = new CompositeDisposable();
+
+    // Page sizes are aligned to the offset, so requests normally start at a page boundary.
+    // Should a request still overlap with items that were already loaded, those are skipped.
+    private static class PageRequest {
+        final int offset;
+        final int page;
+        final int pageSize;
+        final int skip;
+
+        PageRequest(int offset, int pageSize) {
+            this.offset = offset;
+            this.page = offset / pageSize + 1;
+            this.pageSize = pageSize;
+            this.skip = offset % pageSize;
+        }
+    }
+
+    private static class PageData<T> {
+        final PageRequest request;
+        final String etag;
+        final Integer nextOffset;
+        // Number of the last page at the requested page size, if known
+        final Integer lastPage;
+        // Null if the page was evicted in windowed paging mode, or wasn't loaded yet in
+        // random access paging mode. Only modified on the main thread.
+        List<T> items;
+        int itemCount;
+
+        PageData(PageRequest request, List<T> items, String etag, Integer nextOffset,
+                Integer lastPage) {
+            this.request = request;
+            this.items = items;
+            this.itemCount = items.size();
+            this.etag = etag;
+            this.nextOffset = nextOffset;
+            this.lastPage = lastPage;
+        }
+
+        // Creates a page that isn't loaded yet
+        PageData(PageRequest request, int itemCount, Integer nextOffset) {
+            this.request = request;
+            this.itemCount = itemCount;
+            this.etag = null;
+            this.nextOffset = nextOffset;
+            this.lastPage = null;
+        }
+
+        List<T> getItemsOrPlaceholders() {
+            return items != null ? items : Collections.nCopies(itemCount, null);
+        }
+    }
+
+    private static class LoadResult<T> {
+        final List<PageData<T>> pages;
+        final Integer nextOffset;
+
+        LoadResult(List<PageData<T>> pages, Integer nextOffset) {
+            this.pages = pages;
+            this.nextOffset = nextOffset;
+        }
+    }
 
     @Override
     public void onViewCreated(View view, Bundle savedInstanceState) {
@@ -59,18 +168,50 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
         if (shouldDoInitialLoad(savedInstanceState)) {
             setContentShown(false);
             load(false);
+            loadSnapshot();
         }
     }
 
     @Override
     public void onRefresh() {
+        if (mRxLoader == null || mDisplayedPages.isEmpty() || !supportsIncrementalRefresh()) {
+            reload();
+            return;
+        }
+        revalidateDisplayedPages();
+    }
+
+    private void revalidateDisplayedPages() {
+        if (mSubscription != null) {
+            mSubscription.dispose();
+            mSubscription = null;
+        }
+        // Keep showing the current data while revalidating the loaded pages.
+        // Further pages are requested via the page subject as usual after that.
+        List<PageData<T>> loadedPages = new ArrayList<>(mDisplayedPages);
+        mNextOffset = null;
+        mPageSubject = BehaviorSubject.create();
+        load(true, loadedPages);
+    }
+
+    /**
+     * Discards all loaded data and loads it again, starting from the first page.
+     * Use this instead of {@link #onRefresh()} when the request parameters have changed.
+     */
+    protected void reload() {
         if (mAdapter != null) {
             mAdapter.clear();
         }
+        mDisplayedPages.clear();
+        mFollowUpLoads = 0;
+        mPendingOffset = null;
         if (mSubscription != null) {
             mSubscription.dispose();
             mSubscription = null;
         }
+        cancelDiff();
+        cancelPageRestores();
+        cancelSnapshotLoad();
         if (mRxLoader != null) {
             resetSubject();
             setContentShown(false);
@@ -81,7 +222,12 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
     @Override
     protected void onRecyclerViewInflated(RecyclerView view, LayoutInflater inflater) {
         super.onRecyclerViewInflated(view, inflater);
+        mRecyclerView = view;
+        mRecyclerView.addOnScrollListener(mPrefetchScrollListener);
         mAdapter = onCreateAdapter();
+        mDisplayedPages.clear();
+        cancelDiff();
+        cancelPageRestores();
 
         mLoadingView = inflater.inflate(R.layout.list_loading_view, view, false);
         mAdapter.setFooterView(mLoadingView, this);
@@ -90,6 +236,38 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
         updateEmptyState();
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        // Pick up loading where onStop() left off, if the user is still close to the end
+        maybePrefetchNextPage();
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        saveSnapshot();
+        // The user left the screen, so don't load pages nobody may ever look at
+        if (mPendingOffset != null) {
+            mNextOffset = mPendingOffset;
+            mPendingOffset = null;
+            mFollowUpLoads = Math.max(0, mFollowUpLoads - 1);
+            mPageCancelSubject.onNext(mNextOffset);
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelDiff();
+        cancelPageRestores();
+        cancelSnapshotLoad();
+        if (mRecyclerView != null) {
+            mRecyclerView.removeOnScrollListener(mPrefetchScrollListener);
+            mRecyclerView = null;
+        }
+    }
+
     @Override
     protected boolean hasDividers() {
         return mAdapter.hasDividers() && !mAdapter.isCardStyle();
@@ -101,85 +279,517 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
     }
 
     protected void resetSubject() {
-        mNextPage = null;
-        mPageSubject = BehaviorSubject.createDefault(1);
-        mPageSubject.onNext(1);
+        mNextOffset = null;
+        mPendingOffset = null;
+        mPageSubject = BehaviorSubject.createDefault(0);
+        mPageSubject.onNext(0);
     }
 
     protected boolean shouldDoInitialLoad(Bundle savedInstanceState) {
         return true;
     }
 
+    /**
+     * Whether a refresh may revalidate the already loaded pages instead of loading them
+     * from scratch. Subclasses whose page loading depends on previously loaded pages
+     * must return false here.
+     */
+    protected boolean supportsIncrementalRefresh() {
+        return true;
+    }
+
+    /**
+     * Number of rows before the end of the list at which the next page is requested
+     * while the user scrolls slowly. For faster scrolling, the distance is increased
+     * so the page arrives in time.
+     */
+    protected int getPrefetchDistance() {
+        return DEFAULT_PREFETCH_DISTANCE;
+    }
+
+    /**
+     * Whether only the pages around the viewport should be kept in memory. Pages further
+     * away are replaced by placeholders and loaded again (usually from the HTTP cache)
+     * when they're scrolled back into view. Useful for lists that can get very long,
+     * as long as their pages can be loaded independently of each other.
+     */
+    protected boolean supportsWindowedPaging() {
+        return supportsRandomAccessPaging();
+    }
+
+    /**
+     * Whether the whole list should be sized upfront, using placeholders for all items
+     * after the first page. Only the pages the user actually scrolls to (e.g. by dragging
+     * the fast scroller) are loaded, pages that are skipped over aren't. This implies
+     * windowed paging, and requires the API to return the number of the last page.
+     */
+    protected boolean supportsRandomAccessPaging() {
+        return false;
+    }
+
+    /**
+     * Key under which a snapshot of the list is stored on disk. The snapshot is shown
+     * after a cold start while the list is revalidated. The key must identify the list's
+     * request parameters; return null (the default) if no snapshots should be stored.
+     * Requires {@link #supportsIncrementalRefresh()} and {@link #getSnapshotItemType()}.
+     */
+    protected String getSnapshotKey() {
+        return null;
+    }
+
+    /**
+     * Type of the list items, used for storing them in snapshots.
+     */
+    protected Type getSnapshotItemType() {
+        return null;
+    }
+
     private void load(boolean force) {
-        mSubscription = mPageSubject
-                .flatMap(page -> loadPage(page, force)
-                        .map(response -> {
-                            if (response.code() == HttpURLConnection.HTTP_NO_CONTENT) {
-                                return Response.success(new ApiHelpers.DummyPage<T>());
+        load(force, null);
+    }
+
+    private void load(boolean force, List<PageData<T>> pagesToRevalidate) {
+        final Single<LoadResult<T>> initialResult = pagesToRevalidate != null
+                ? revalidatePages(pagesToRevalidate)
+                : Single.just(new LoadResult<>(new ArrayList<>(), 0));
+
+        mSubscription = initialResult
+                .flatMapObservable(initial -> mPageSubject
+                        .map(this::createPageRequest)
+                        .flatMap(request -> loadPageData(request, force).toObservable()
+                                .takeUntil(mPageCancelSubject
+                                        .filter(offset -> offset == request.offset)))
+                        .scan(initial, (result, page) -> {
+                            List<PageData<T>> pages = new ArrayList<>(result.pages);
+                            pages.add(page);
+                            if (pages.size() == 1 && page.lastPage != null
+                                    && supportsRandomAccessPaging()) {
+                                addUnloadedPages(pages, page);
+                                return new LoadResult<>(pages, null);
                             }
-                            return response;
-                        })
-                        .map(ApiHelpers::throwOnFailure)
-                        .compose(RxUtils::doInBackground)
-                        .toObservable())
-                .scan(Pair.create(new ArrayList<T>(), 0), (pair, page) -> {
-                    pair.first.addAll(page.items());
-                    return Pair.create(pair.first, page.next());
-                })
-                // filter out initial value
-                .filter(pair -> pair.second == null || pair.second != 0)
+                            return new LoadResult<>(pages, page.nextOffset);
+                        }))
+                // filter out initial value of a fresh load
+                .filter(result -> !result.pages.isEmpty())
                 .compose(mRxLoader.makeObservableTransformer(0, force))
                 .subscribe(result -> {
-                    fillData(result.first, result.second);
+                    fillData(result);
                     setContentShown(true);
                     updateEmptyState();
                 }, this::handleLoadFailure);
     }
 
-    private void fillData(List<T> data, Integer nextPage) {
-        mNextPage = nextPage;
-        mLoadingView.setVisibility(nextPage != null ? View.VISIBLE : View.GONE);
-
-        if (mAdapter.getCount() > 0 && !data.isEmpty() && data.iterator().next() == mAdapter.getItem(0)) {
-            // there are common items, preserve them in order to keep the scroll position
-            ArrayList<T> newData = new ArrayList<>();
-            int index = 0, count = mAdapter.getCount();
-            for (T item : data) {
-                if (index < count && item == mAdapter.getItem(index++)) {
-                    // we already know about the item
-                    continue;
-                }
-                newData.add(item);
+    private PageRequest createPageRequest(int offset) {
+        int visibleRows = getVisibleRowCount();
+        int pageSize = offset == 0
+                ? PageSizePolicy.getFirstPageSize(visibleRows)
+                : PageSizePolicy.getFollowUpPageSize(visibleRows,
+                        mFollowUpLoads >= FOLLOW_UP_LOADS_UNTIL_FULLY_CONSUMED);
+        // A larger size only takes effect once the offset is a multiple of it
+        return new PageRequest(offset, PageSizePolicy.alignToOffset(pageSize, offset));
+    }
+
+    private int getVisibleRowCount() {
+        int viewportHeight = mRecyclerView != null && mRecyclerView.getHeight() > 0
+                ? mRecyclerView.getHeight() : getResources().getDisplayMetrics().heightPixels;
+        return Math.max(1, viewportHeight / getRowHeight());
+    }
+
+    private int getRowHeight() {
+        View firstRow = mRecyclerView != null ? mRecyclerView.getChildAt(0) : null;
+        if (firstRow != null && firstRow.getHeight() > 0) {
+            return firstRow.getHeight();
+        }
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        return Math.round(DEFAULT_ROW_HEIGHT_DP * metrics.density);
+    }
+
+    private final RecyclerView.OnScrollListener mPrefetchScrollListener =
+            new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            long now = SystemClock.uptimeMillis();
+            long elapsed = now - mLastScrollTime;
+            mLastScrollTime = now;
+            updateResidentPages();
+            if (dy <= 0) {
+                mScrollVelocity = 0;
+                return;
+            }
+            if (elapsed > 0 && elapsed < 1000) {
+                float velocity = (float) dy / elapsed;
+                mScrollVelocity = VELOCITY_SMOOTHING_FACTOR * velocity
+                        + (1 - VELOCITY_SMOOTHING_FACTOR) * mScrollVelocity;
+            }
+            maybePrefetchNextPage();
+        }
+
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                mScrollVelocity = 0;
+                updateResidentPages();
+            }
+        }
+    };
+
+    private void maybePrefetchNextPage() {
+        if (mNextOffset == null || mRecyclerView == null || mAdapter == null
+                || !(mRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager lm = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        int lastVisible = mAdapter.getItemPosition(lm.findLastVisibleItemPosition());
+        if (lastVisible < 0) {
+            // Only the header or footer is visible; the footer triggers the load by itself
+            return;
+        }
+        int remainingRows = mAdapter.getCount() - 1 - lastVisible;
+
+        // Make sure the page arrives before the user reaches the end of the list
+        int rowHeight = getRowHeight();
+        PageRequest request = createPageRequest(mNextOffset);
+        long loadTimeMs = PageSizePolicy.estimateLoadTimeMs(request.pageSize);
+        int rowsDuringLoad = (int) Math.ceil(mScrollVelocity * loadTimeMs / rowHeight);
+        if (remainingRows <= Math.max(getPrefetchDistance(), rowsDuringLoad)) {
+            requestNextPage();
+        }
+    }
+
+    private Single<PageData<T>> loadPageData(PageRequest request, boolean bypassCache) {
+        return Single.defer(() -> {
+            long startTime = SystemClock.elapsedRealtime();
+            return loadPage(request.page, request.pageSize, bypassCache)
+                    .map(response -> {
+                        if (response.code() == HttpURLConnection.HTTP_NO_CONTENT) {
+                            return Response.success(new ApiHelpers.DummyPage<T>());
+                        }
+                        return response;
+                    })
+                    .map(response -> {
+                        Page<T> result = ApiHelpers.throwOnFailure(response);
+                        List<T> items = result.items();
+                        okhttp3.Response networkResponse = response.raw().networkResponse();
+                        if (networkResponse != null
+                                && networkResponse.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                            PageSizePolicy.recordPageLoad(items.size(),
+                                    SystemClock.elapsedRealtime() - startTime);
+                        }
+                        if (request.skip > 0) {
+                            items = items.subList(Math.min(request.skip, items.size()), items.size());
+                        }
+                        items = onFilterData(items);
+                        Integer nextOffset = result.next() != null
+                                ? (result.next() - 1) * request.pageSize : null;
+                        return new PageData<>(request, items, response.headers().get("ETag"),
+                                nextOffset, result.last());
+                    });
+        }).compose(RxUtils::doInBackground);
+    }
+
+    // Appends pages covering the rest of the list after the first page, sized by the
+    // number of the last page. They're only loaded when scrolled into view.
+    private static <T> void addUnloadedPages(List<PageData<T>> pages, PageData<T> firstPage) {
+        int totalCount = firstPage.lastPage * firstPage.request.pageSize;
+        int offset = firstPage.nextOffset;
+        while (offset < totalCount) {
+            PageRequest request = new PageRequest(offset,
+                    PageSizePolicy.alignToOffset(ApiHelpers.MAX_PAGE_SIZE, offset));
+            int end = Math.min(request.page * request.pageSize, totalCount);
+            pages.add(new PageData<>(request, end - offset, end < totalCount ? end : null));
+            offset = end;
+        }
+    }
+
+    // Loads the given pages again without bypassing the HTTP cache, so they're revalidated
+    // using their cached ETags. Pages whose ETag didn't change are kept as they are, as are
+    // pages which aren't loaded in windowed or random access paging mode.
+    private Single<LoadResult<T>> revalidatePages(List<PageData<T>> pages) {
+        List<Boolean> loaded = new ArrayList<>();
+        for (PageData<T> page : pages) {
+            loaded.add(page.items != null);
+        }
+        return Observable.range(0, pages.size())
+                .concatMapEager(index -> loaded.get(index)
+                                ? loadPageData(pages.get(index).request, false).toObservable()
+                                : Observable.just(pages.get(index)),
+                        ApiHelpers.MAX_PAGE_CONCURRENCY, 1)
+                .toList()
+                .map(freshPages -> {
+                    List<PageData<T>> result = new ArrayList<>();
+                    Integer nextOffset = null;
+                    for (int i = 0; i < freshPages.size(); i++) {
+                        PageData<T> oldPage = pages.get(i);
+                        PageData<T> freshPage = freshPages.get(i);
+                        boolean unchanged = freshPage.etag != null
+                                && freshPage.etag.equals(oldPage.etag);
+                        result.add(unchanged ? oldPage : freshPage);
+                        nextOffset = freshPage.nextOffset;
+                        if (nextOffset == null) {
+                            // the list got shorter
+                            break;
+                        }
+                    }
+                    return new LoadResult<>(result, nextOffset);
+                });
+    }
+
+    private void fillData(LoadResult<T> result) {
+        mNextOffset = result.nextOffset;
+        mPendingOffset = null;
+        mLoadingView.setVisibility(result.nextOffset != null ? View.VISIBLE : View.GONE);
+
+        int keptPages = 0;
+        while (keptPages < mDisplayedPages.size() && keptPages < result.pages.size()
+                && mDisplayedPages.get(keptPages) == result.pages.get(keptPages)) {
+            keptPages++;
+        }
+        if (keptPages == mDisplayedPages.size()) {
+            // The common case of a new page being loaded: only append the new items
+            cancelDiff();
+            if (supportsWindowedPaging()) {
+                mAdapter.setPlaceholderHeight(getRowHeight());
+            }
+            for (int i = keptPages; i < result.pages.size(); i++) {
+                PageData<T> page = result.pages.get(i);
+                mAdapter.addAll(page.getItemsOrPlaceholders());
+                mDisplayedPages.add(page);
+            }
+            if (supportsWindowedPaging() && mRecyclerView != null) {
+                // Redelivered results may contain evicted pages
+                mRecyclerView.post(this::updateResidentPages);
             }
-            onAddData(mAdapter, newData);
         } else {
-            mAdapter.clear();
-            onAddData(mAdapter, data);
+            // Some pages changed on refresh. Only update the changed rows, so the
+            // scroll position is kept; the diff is calculated in background as it's
+            // linear in the number of loaded items.
+            applyChangedPages(result.pages);
+        }
+    }
+
+    private void applyChangedPages(List<PageData<T>> pages) {
+        cancelDiff();
+        final RootAdapter<T, ? extends RecyclerView.ViewHolder> adapter = mAdapter;
+        final List<T> oldItems = adapter.getItems();
+        final List<T> newItems = new ArrayList<>();
+        for (PageData<T> page : pages) {
+            newItems.addAll(page.getItemsOrPlaceholders());
+        }
+        mDiffSubscription = Single.fromCallable(() -> adapter.calculateDiff(oldItems, newItems))
+                .compose(RxUtils::doInBackground)
+                .subscribe(diff -> {
+                    mDiffSubscription = null;
+                    adapter.setItems(newItems, diff);
+                    mDisplayedPages.clear();
+                    mDisplayedPages.addAll(pages);
+                    updateEmptyState();
+                }, this::handleLoadFailure);
+    }
+
+    private void updateResidentPages() {
+        if (!supportsWindowedPaging() || mRecyclerView == null || mAdapter == null
+                || mDiffSubscription != null || mAdapter.isFiltering()
+                || !(mRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager lm = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        int firstVisible = lm.findFirstVisibleItemPosition();
+        int lastVisible = lm.findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION) {
+            return;
+        }
+        // Map adapter positions to item positions, taking header and footer into account
+        int first = mAdapter.getItemPosition(firstVisible);
+        int last = mAdapter.getItemPosition(lastVisible);
+        if (first < 0 && last < 0) {
+            // only the header or footer is visible
+            first = last = firstVisible == 0 ? 0 : mAdapter.getCount() - 1;
+        } else if (first < 0) {
+            first = 0;
+        } else if (last < 0) {
+            last = mAdapter.getCount() - 1;
+        }
+
+        // When jumping through the list, only load the pages the user ends up at
+        boolean deferRestores = supportsRandomAccessPaging() && (mFastScrollerDragging
+                || mRecyclerView.getScrollState() == RecyclerView.SCROLL_STATE_SETTLING);
+
+        mAdapter.setPlaceholderHeight(getRowHeight());
+        int start = 0;
+        for (PageData<T> page : mDisplayedPages) {
+            int end = start + page.itemCount;
+            int distance = end <= first ? first - end + 1 : start > last ? start - last : 0;
+            if (page.items != null && distance > EVICT_DISTANCE) {
+                page.items = null;
+                mAdapter.clearRange(start, page.itemCount);
+            } else if (page.items == null && distance < RESTORE_DISTANCE && !deferRestores
+                    && !mRestoringPages.contains(page)) {
+                restorePage(page);
+            }
+            start = end;
         }
     }
 
-    protected void onAddData(RootAdapter<T, ? extends RecyclerView.ViewHolder> adapter, Collection<T> data) {
-        adapter.addAll(data);
+    private void restorePage(PageData<T> page) {
+        mRestoringPages.add(page);
+        mRestoreSubscriptions.add(loadPageData(page.request, false)
+                .subscribe(freshPage -> {
+                    mRestoringPages.remove(page);
+                    int index = mDisplayedPages.indexOf(page);
+                    if (index < 0) {
+                        return;
+                    }
+                    int start = 0;
+                    for (int i = 0; i < index; i++) {
+                        start += mDisplayedPages.get(i).itemCount;
+                    }
+                    page.items = freshPage.items;
+                    if (freshPage.items.size() == page.itemCount) {
+                        mAdapter.replaceRange(start, freshPage.items);
+                    } else {
+                        // The page changed in the meantime, so the positions of
+                        // all following items need to be updated
+                        page.itemCount = freshPage.items.size();
+                        applyChangedPages(new ArrayList<>(mDisplayedPages));
+                    }
+                }, error -> {
+                    // Keep the placeholders, loading is retried when scrolling
+                    mRestoringPages.remove(page);
+                }));
+    }
+
+    @Override
+    protected void onFastScrollerDragStateChanged(boolean dragging) {
+        super.onFastScrollerDragStateChanged(dragging);
+        mFastScrollerDragging = dragging;
+        if (!dragging) {
+            updateResidentPages();
+        }
+    }
+
+    private void loadSnapshot() {
+        String key = getSnapshotKey();
+        if (key == null || !supportsIncrementalRefresh()) {
+            return;
+        }
+        mSnapshotSubscription = ListSnapshotStore.<T>load(key, getSnapshotItemType())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::applySnapshot, error -> {});
+    }
+
+    private void applySnapshot(ListSnapshotStore.Snapshot<T> snapshot) {
+        mSnapshotSubscription = null;
+        if (!mDisplayedPages.isEmpty() || mAdapter == null || snapshot.pages.isEmpty()) {
+            // The actual data was faster
+            return;
+        }
+        List<PageData<T>> pages = new ArrayList<>();
+        for (ListSnapshotStore.Page<T> page : snapshot.pages) {
+            PageRequest request = new PageRequest(page.offset, page.pageSize);
+            pages.add(page.items != null
+                    ? new PageData<>(request, page.items, page.etag, page.nextOffset, null)
+                    : new PageData<>(request, page.itemCount, page.nextOffset));
+        }
+        fillData(new LoadResult<>(pages, pages.get(pages.size() - 1).nextOffset));
+        setContentShown(true);
+        updateEmptyState();
+        if (mRecyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) mRecyclerView.getLayoutManager())
+                    .scrollToPositionWithOffset(snapshot.scrollPosition, snapshot.scrollOffset);
+        }
+        // Check the snapshot for changes just like on a refresh
+        revalidateDisplayedPages();
+    }
+
+    private void saveSnapshot() {
+        String key = getSnapshotKey();
+        if (key == null || mDisplayedPages.isEmpty() || mRecyclerView == null
+                || !(mRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager lm = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        int scrollPosition = Math.max(0, lm.findFirstVisibleItemPosition());
+        View firstView = lm.findViewByPosition(scrollPosition);
+        int scrollOffset = firstView != null
+                ? firstView.getTop() - mRecyclerView.getPaddingTop() : 0;
+
+        List<ListSnapshotStore.Page<T>> pages = new ArrayList<>();
+        int itemCount = 0;
+        for (PageData<T> page : mDisplayedPages) {
+            boolean storeItems = page.items != null && itemCount < MAX_SNAPSHOT_ITEMS;
+            if (!storeItems && !supportsWindowedPaging()) {
+                break;
+            }
+            pages.add(new ListSnapshotStore.Page<>(page.request.offset, page.request.pageSize,
+                    page.itemCount, page.nextOffset, page.etag, storeItems ? page.items : null));
+            if (storeItems) {
+                itemCount += page.itemCount;
+            }
+        }
+        ListSnapshotStore.save(key, getSnapshotItemType(),
+                new ListSnapshotStore.Snapshot<>(pages, scrollPosition, scrollOffset));
+    }
+
+    private void cancelSnapshotLoad() {
+        if (mSnapshotSubscription != null) {
+            mSnapshotSubscription.dispose();
+            mSnapshotSubscription = null;
+        }
+    }
+
+    private void cancelPageRestores() {
+        mRestoreSubscriptions.clear();
+        mRestoringPages.clear();
+    }
+
+    private void cancelDiff() {
+        if (mDiffSubscription != null) {
+            mDiffSubscription.dispose();
+            mDiffSubscription = null;
+        }
+    }
+
+    /**
+     * Selects the items of a loaded page that should be shown.
+     * Called on a background thread.
+     */
+    protected List<T> onFilterData(List<T> data) {
+        return data;
     }
 
     @Override
     public void onScrolledToFooter() {
-        if (mNextPage != null && mLoadingView.getVisibility() == View.VISIBLE) {
+        if (mNextOffset != null && mLoadingView.getVisibility() == View.VISIBLE) {
             // Even if our subscription above is active, the page subject might not be subscribed
             // to yet - this is the case if the data comes from the RX loader's cache. In that case,
             // updating the page subject is pointless at this point. Force a load to subscribe to
             // the page subject, which will cause the data to be delivered again, after which
             // onScrolledToFooter will be called again.
             if (mPageSubject.hasObservers()) {
-                mPageSubject.onNext(mNextPage);
+                requestNextPage();
             } else {
                 load(true);
+                mNextOffset = null;
             }
-            mNextPage = null;
         }
     }
 
+    private void requestNextPage() {
+        if (mNextOffset == null || !mPageSubject.hasObservers()) {
+            return;
+        }
+        mFollowUpLoads++;
+        mPendingOffset = mNextOffset;
+        mNextOffset = null;
+        mPageSubject.onNext(mPendingOffset);
+    }
+
     protected abstract RootAdapter<T, ? extends RecyclerView.ViewHolder> onCreateAdapter();
-    protected abstract Single<Response<Page<T>>> loadPage(int page, boolean bypassCache);
+    /**
+     * @param pageSize Page size picked by {@link PageSizePolicy}, to be passed to
+     *                 {@link com.gh4a.ServiceFactory#get(Class, boolean, Integer)}
+     */
+    protected abstract Single<Response<Page<T>>> loadPage(int page, int pageSize,
+            boolean bypassCache);
     public abstract void onItemClick(T item);
 }
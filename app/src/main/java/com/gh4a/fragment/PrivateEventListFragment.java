@@ -3,10 +3,13 @@ package com.gh4a.fragment;
 import android.os.Bundle;
 
 import com.gh4a.ServiceFactory;
+import com.gh4a.utils.RateLimitScheduler;
 import com.meisolsson.githubsdk.model.GitHubEvent;
 import com.meisolsson.githubsdk.model.Page;
 import com.meisolsson.githubsdk.service.activity.EventService;
 
+import java.lang.reflect.Type;
+
 import io.reactivex.Single;
 import retrofit2.Response;
 
@@ -31,8 +34,21 @@ public class PrivateEventListFragment extends EventListFragment {
     }
 
     @Override
-    protected Single<Response<Page<GitHubEvent>>> loadRawPage(int page, boolean bypassCache) {
-        final EventService service = ServiceFactory.get(EventService.class, bypassCache);
+    protected String getSnapshotKey() {
+        return "events/" + mLogin + "/" + mOrganization;
+    }
+
+    @Override
+    protected Type getSnapshotItemType() {
+        return GitHubEvent.class;
+    }
+
+    @Override
+    protected Single<Response<Page<GitHubEvent>>> loadRawPage(int page, int pageSize,
+            boolean bypassCache) {
+        final EventService service = ServiceFactory.getWithSlimModels(EventService.class,
+                bypassCache, ServiceFactory.ACCEPT_RAW, pageSize,
+                RateLimitScheduler.Priority.FOREGROUND);
         return mOrganization != null
                 ? service.getOrganizationEvents(mLogin, mOrganization, page)
                 : service.getUserReceivedEvents(mLogin, page);
@@ -25,15 +25,19 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 
+import com.gh4a.Gh4Application;
 import com.gh4a.R;
 import com.gh4a.ServiceFactory;
 import com.gh4a.activities.EditIssueCommentActivity;
 import com.gh4a.activities.EditPullRequestCommentActivity;
+import com.gh4a.model.GraphQlService;
 import com.gh4a.model.StatusWrapper;
 import com.gh4a.model.TimelineItem;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.IntentUtils;
+import com.gh4a.utils.PullRequestReviewLoader;
 import com.gh4a.utils.RxUtils;
+import com.gh4a.utils.Triplet;
 import com.gh4a.widget.CommitStatusBox;
 import com.gh4a.widget.PullRequestBranchInfoView;
 import com.meisolsson.githubsdk.model.CheckRun;
@@ -194,49 +198,26 @@ public class PullRequestConversationFragment extends IssueFragmentBase {
     protected Single<List<TimelineItem>> onCreateDataSingle(boolean bypassCache) {
         final int issueNumber = mIssue.number();
         var timelineService = ServiceFactory.getForFullPagedLists(IssueTimelineService.class, bypassCache);
-        var reviewService = ServiceFactory.getForFullPagedLists(PullRequestReviewService.class, bypassCache);
-        var prCommentService = ServiceFactory.getForFullPagedLists(PullRequestReviewCommentService.class, bypassCache);
 
         Single<List<TimelineItem>> timelineItemsSingle = ApiHelpers.PageIterator
-                .toSingle(page -> timelineService.getTimeline(mRepoOwner, mRepoName, issueNumber, page))
+                .toSingle(page -> timelineService.getTimeline(mRepoOwner, mRepoName, issueNumber, page),
+                        ApiHelpers.MAX_PAGE_CONCURRENCY)
                 .compose(RxUtils.filter(event -> INTERESTING_EVENTS.contains(event.event())))
                 .map(this::removeRedundantClosedEvent)
                 .compose(RxUtils.mapList(TimelineItem::fromIssueEvent));
 
-        Single<List<Review>> reviewsSingle = ApiHelpers.PageIterator
-                .toSingle(page -> reviewService.getReviews(mRepoOwner, mRepoName, issueNumber, page))
-                .cache(); // single is used multiple times -> avoid refetching data
-        Single<List<ReviewComment>> prCommentsSingle = ApiHelpers.PageIterator
-                .toSingle(page -> prCommentService.getPullRequestComments(mRepoOwner, mRepoName, issueNumber, page))
-                .compose(RxUtils.sortList(ApiHelpers.COMMENT_COMPARATOR))
+        // GraphQL queries require authorization, and the REST API serves as fallback
+        // in case the GraphQL query fails for some reason
+        var reviewDataSingle = (Gh4Application.get().isAuthorized()
+                ? loadReviewDataViaGraphQl(issueNumber, bypassCache)
+                        .onErrorResumeNext(loadReviewData(issueNumber, bypassCache))
+                : loadReviewData(issueNumber, bypassCache))
                 .cache(); // single is used multiple times -> avoid refetching data
 
-        // For reviews with pending state we have to manually load the comments
-        Single<LongSparseArray<List<ReviewComment>>> pendingReviewCommentsByIdSingle = reviewsSingle
-                .compose(RxUtils.filter(r -> r.state() == ReviewState.Pending))
-                .toObservable()
-                .flatMap(reviews -> {
-                    List<Observable<Pair<Long, List<ReviewComment>>>> obsList = new ArrayList<>();
-                    for (Review r : reviews) {
-                        Single<List<ReviewComment>> single = ApiHelpers.PageIterator
-                                .toSingle(page -> reviewService.getReviewComments(mRepoOwner,
-                                        mRepoName, issueNumber, r.id(), page));
-                        obsList.add(Single.zip(Single.just(r.id()), single, Pair::create).toObservable());
-                    }
-                    return Observable.concat(obsList);
-                })
-                .toList()
-                .map(list -> {
-                    LongSparseArray<List<ReviewComment>> result = new LongSparseArray<>();
-                    for (Pair<Long, List<ReviewComment>> pair : list) {
-                        result.put(pair.first, pair.second);
-                    }
-                    return result;
-                });
-
-        Single<List<TimelineItem.TimelineReview>> reviewItemsSingle = Single.zip(
-                reviewsSingle, prCommentsSingle, pendingReviewCommentsByIdSingle,
-                (prReviews, prComments, pendingReviewCommentsById) -> {
+        Single<List<TimelineItem.TimelineReview>> reviewItemsSingle = reviewDataSingle.map(reviewData -> {
+            List<Review> prReviews = reviewData.first;
+            List<ReviewComment> prComments = reviewData.second;
+            LongSparseArray<List<ReviewComment>> pendingReviewCommentsById = reviewData.third;
             LongSparseArray<TimelineItem.TimelineReview> reviewsById = new LongSparseArray<>();
             List<TimelineItem.TimelineReview> reviewItems = new ArrayList<>();
 
@@ -283,7 +264,8 @@ public class PullRequestConversationFragment extends IssueFragmentBase {
         // review comments which are not linked to a review object.
         // For now we're showing them in between the conversation, but it would be best
         // to group them in threads as GitHub does.
-        Single<List<TimelineItem>> prCommentsWithoutReviewSingle = prCommentsSingle
+        Single<List<TimelineItem>> prCommentsWithoutReviewSingle = reviewDataSingle
+                        .map(reviewData -> reviewData.second)
                         .compose(RxUtils.filter(comment -> comment.pullRequestReviewId() == null))
                         .compose(RxUtils.mapList(TimelineItem.TimelineComment::new));
 
@@ -301,6 +283,67 @@ public class PullRequestConversationFragment extends IssueFragmentBase {
         });
     }
 
+    // Loads reviews, review comments and comments of pending reviews via the REST API
+    private Single<Triplet<List<Review>, List<ReviewComment>, LongSparseArray<List<ReviewComment>>>>
+            loadReviewData(int issueNumber, boolean bypassCache) {
+        var reviewService = ServiceFactory.getForFullPagedLists(PullRequestReviewService.class, bypassCache);
+        var prCommentService = ServiceFactory.getForFullPagedLists(PullRequestReviewCommentService.class, bypassCache);
+
+        Single<List<Review>> reviewsSingle = ApiHelpers.PageIterator
+                .toSingle(page -> reviewService.getReviews(mRepoOwner, mRepoName, issueNumber, page),
+                        ApiHelpers.MAX_PAGE_CONCURRENCY)
+                .cache(); // single is used multiple times -> avoid refetching data
+        Single<List<ReviewComment>> prCommentsSingle = ApiHelpers.PageIterator
+                .toSingle(page -> prCommentService.getPullRequestComments(mRepoOwner, mRepoName, issueNumber, page),
+                        ApiHelpers.MAX_PAGE_CONCURRENCY)
+                .compose(RxUtils.sortList(ApiHelpers.COMMENT_COMPARATOR));
+
+        // For reviews with pending state we have to manually load the comments
+        Single<LongSparseArray<List<ReviewComment>>> pendingReviewCommentsByIdSingle = reviewsSingle
+                .compose(RxUtils.filter(r -> r.state() == ReviewState.Pending))
+                .toObservable()
+                .flatMap(reviews -> {
+                    List<Observable<Pair<Long, List<ReviewComment>>>> obsList = new ArrayList<>();
+                    for (Review r : reviews) {
+                        Single<List<ReviewComment>> single = ApiHelpers.PageIterator
+                                .toSingle(page -> reviewService.getReviewComments(mRepoOwner,
+                                        mRepoName, issueNumber, r.id(), page));
+                        obsList.add(Single.zip(Single.just(r.id()), single, Pair::create).toObservable());
+                    }
+                    return Observable.concat(obsList);
+                })
+                .toList()
+                .map(list -> {
+                    LongSparseArray<List<ReviewComment>> result = new LongSparseArray<>();
+                    for (Pair<Long, List<ReviewComment>> pair : list) {
+                        result.put(pair.first, pair.second);
+                    }
+                    return result;
+                });
+
+        return Single.zip(reviewsSingle, prCommentsSingle, pendingReviewCommentsByIdSingle,
+                Triplet::create);
+    }
+
+    // Loads the same data as loadReviewData(), but with (usually) a single GraphQL query
+    private Single<Triplet<List<Review>, List<ReviewComment>, LongSparseArray<List<ReviewComment>>>>
+            loadReviewDataViaGraphQl(int issueNumber, boolean bypassCache) {
+        GraphQlService service = ServiceFactory.get(GraphQlService.class, bypassCache);
+        return new PullRequestReviewLoader(service, mRepoOwner, mRepoName, issueNumber)
+                .load()
+                .map(result -> {
+                    List<ReviewComment> comments = new ArrayList<>(result.comments);
+                    Collections.sort(comments, ApiHelpers.COMMENT_COMPARATOR);
+
+                    LongSparseArray<List<ReviewComment>> pendingComments = new LongSparseArray<>();
+                    for (Map.Entry<Long, List<ReviewComment>> entry
+                            : result.pendingReviewComments.entrySet()) {
+                        pendingComments.put(entry.getKey(), entry.getValue());
+                    }
+                    return Triplet.create(result.reviews, comments, pendingComments);
+                });
+    }
+
     // The GitHub timeline API always returns a "closed" event after a "merged" one, which we don't want
     // to display (as GH does on their website) because it doesn't make much sense from a user perspective:
     // a user either closes or merges a PR, not both at the same time.
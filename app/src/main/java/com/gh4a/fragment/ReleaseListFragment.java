@@ -38,9 +38,11 @@ public class ReleaseListFragment extends PagedDataBaseFragment<Release> implemen
     }
 
     @Override
-    protected Single<Response<Page<Release>>> loadPage(int page, boolean bypassCache) {
-        final RepositoryReleaseService service =
-                ServiceFactory.get(RepositoryReleaseService.class, bypassCache);
+    protected Single<Response<Page<Release>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
+        final RepositoryReleaseService service = ServiceFactory.get(
+                RepositoryReleaseService.class, bypassCache, ServiceFactory.ACCEPT_RAW, null,
+                pageSize);
         return service.getReleases(mUserLogin, mRepoName, page);
     }
 
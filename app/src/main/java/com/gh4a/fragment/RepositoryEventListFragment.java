@@ -3,6 +3,7 @@ package com.gh4a.fragment;
 import android.os.Bundle;
 
 import com.gh4a.ServiceFactory;
+import com.gh4a.utils.RateLimitScheduler;
 import com.meisolsson.githubsdk.model.GitHubEvent;
 import com.meisolsson.githubsdk.model.Page;
 import com.meisolsson.githubsdk.model.Repository;
@@ -29,8 +30,11 @@ public class RepositoryEventListFragment extends EventListFragment {
     }
 
     @Override
-    protected Single<Response<Page<GitHubEvent>>> loadRawPage(int page, boolean bypassCache) {
-        final EventService service = ServiceFactory.get(EventService.class, bypassCache);
+    protected Single<Response<Page<GitHubEvent>>> loadRawPage(int page, int pageSize,
+            boolean bypassCache) {
+        final EventService service = ServiceFactory.getWithSlimModels(EventService.class,
+                bypassCache, ServiceFactory.ACCEPT_RAW, pageSize,
+                RateLimitScheduler.Priority.FOREGROUND);
         return service.getRepositoryEvents(mRepository.owner().login(), mRepository.name(), page);
     }
 }
@@ -65,6 +65,7 @@ import com.vdurmont.emoji.EmojiParser;
 
 import java.net.HttpURLConnection;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 
 import io.reactivex.Single;
@@ -102,6 +103,7 @@ public class RepositoryFragment extends LoadingFragmentBase implements
     private TextView mReadmeTitleView;
     private Boolean mIsWatching = null;
     private Boolean mIsStarring = null;
+    private Integer mPullRequestCount = null;
     private boolean mIsReadmeLoaded = false;
     private boolean mIsReadmeExpanded = false;
 
@@ -142,6 +144,7 @@ public class RepositoryFragment extends LoadingFragmentBase implements
             OverviewRow pullsRow = mContentView.findViewById(R.id.pulls_row);
             pullsRow.setText(null);
         }
+        mPullRequestCount = null;
         if (mIsWatching != null && mWatcherRow != null) {
             mWatcherRow.setText(null);
         }
@@ -203,6 +206,33 @@ public class RepositoryFragment extends LoadingFragmentBase implements
         outState.putBoolean(STATE_KEY_IS_README_LOADED, mIsReadmeLoaded);
     }
 
+    /**
+     * Shows updated repository data (e.g. after cached data was revalidated) without
+     * loading the README and the other data shown by this fragment again.
+     */
+    public void updateRepository(Repository repository) {
+        boolean defaultBranchChanged =
+                !Objects.equals(mRepository.defaultBranch(), repository.defaultBranch());
+        mRepository = repository;
+        getArguments().putParcelable("repo", repository);
+        if (mContentView == null) {
+            return;
+        }
+        fillData();
+        if (mIsStarring != null) {
+            updateStargazerUi();
+        }
+        if (mIsWatching != null) {
+            updateWatcherUi();
+        }
+        if (mPullRequestCount != null) {
+            updateIssueCounts();
+        }
+        if (defaultBranchChanged && mRef == null && mIsReadmeLoaded) {
+            loadReadme(true);
+        }
+    }
+
     public void setRef(String ref) {
         mRef = ref;
         getArguments().putString("ref", ref);
@@ -446,15 +476,20 @@ public class RepositoryFragment extends LoadingFragmentBase implements
                 .map(SearchPage::totalCount)
                 .compose(makeLoaderSingle(ID_LOADER_PULL_REQUEST_COUNT, force))
                 .subscribe(count -> {
-                    int totalCount = count.intValue();
-                    int issueCount = mRepository.openIssuesCount() - totalCount;
+                    mPullRequestCount = count.intValue();
+                    updateIssueCounts();
+                }, this::handleLoadFailure);
+    }
 
-                    OverviewRow issuesRow = mContentView.findViewById(R.id.issues_row);
-                    issuesRow.setText(getResources().getQuantityString(R.plurals.issue, issueCount, issueCount));
+    private void updateIssueCounts() {
+        int totalCount = mPullRequestCount;
+        int issueCount = mRepository.openIssuesCount() - totalCount;
 
-                    OverviewRow pullsRow = mContentView.findViewById(R.id.pulls_row);
-                    pullsRow.setText(getResources().getQuantityString(R.plurals.pull_request, totalCount, totalCount));
-                }, this::handleLoadFailure);
+        OverviewRow issuesRow = mContentView.findViewById(R.id.issues_row);
+        issuesRow.setText(getResources().getQuantityString(R.plurals.issue, issueCount, issueCount));
+
+        OverviewRow pullsRow = mContentView.findViewById(R.id.pulls_row);
+        pullsRow.setText(getResources().getQuantityString(R.plurals.pull_request, totalCount, totalCount));
     }
 
     private void toggleStarringState() {
@@ -15,8 +15,9 @@
  */
 package com.gh4a.fragment;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import android.os.Bundle;
@@ -106,20 +107,19 @@ public class RepositoryListFragment extends PagedDataBaseFragment<Repository> {
     }
 
     @Override
-    protected void onAddData(RootAdapter<Repository, ? extends RecyclerView.ViewHolder> adapter,
-            Collection<Repository> repositories) {
+    protected List<Repository> onFilterData(List<Repository> repositories) {
         if ("sources".equals(mRepoType) || "forks".equals(mRepoType)) {
+            List<Repository> result = new ArrayList<>();
             for (Repository repository : repositories) {
                 if ("sources".equals(mRepoType) && !repository.isFork()) {
-                    adapter.add(repository);
+                    result.add(repository);
                 } else if ("forks".equals(mRepoType) && repository.isFork()) {
-                    adapter.add(repository);
+                    result.add(repository);
                 }
             }
-            adapter.notifyDataSetChanged();
-        } else {
-            adapter.addAll(repositories);
+            return result;
         }
+        return repositories;
     }
 
     @Override
@@ -128,8 +128,10 @@ public class RepositoryListFragment extends PagedDataBaseFragment<Repository> {
     }
 
     @Override
-    protected Single<Response<Page<Repository>>> loadPage(int page, boolean bypassCache) {
-        final RepositoryService service = ServiceFactory.get(RepositoryService.class, bypassCache);
+    protected Single<Response<Page<Repository>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
+        final RepositoryService service =
+                ServiceFactory.get(RepositoryService.class, bypassCache, pageSize);
         return ApiHelpers.loginEquals(mLogin, Gh4Application.get().getAuthLogin())
                 ? service.getUserRepositories(mFilterData, page)
                 : service.getUserRepositories(mLogin, mFilterData, page);
@@ -32,12 +32,13 @@ public class RepositorySearchFragment extends PagedDataBaseFragment<Repository>
     public void setQuery(String query) {
         getArguments().putString("query", query);
         if (isAdded()) {
-            onRefresh();
+            reload();
         }
     }
 
     @Override
-    protected Single<Response<Page<Repository>>> loadPage(int page, boolean bypassCache) {
+    protected Single<Response<Page<Repository>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
         String login = getArguments().getString("user");
         String query = getArguments().getString("query");
 
@@ -45,7 +46,7 @@ public class RepositorySearchFragment extends PagedDataBaseFragment<Repository>
             return Single.just(Response.success(new ApiHelpers.DummyPage<>()));
         }
 
-        SearchService service = ServiceFactory.get(SearchService.class, bypassCache);
+        SearchService service = ServiceFactory.get(SearchService.class, bypassCache, pageSize);
         String params = query + " fork:true user:" + login;
 
         return service.searchRepositories(params, null, null, page)
@@ -157,14 +157,15 @@ public class SearchFragment extends PagedDataBaseFragment<Object> implements
     }
 
     @Override
-    protected Single<Response<Page<Object>>> loadPage(int page, boolean bypassCache) {
+    protected Single<Response<Page<Object>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
         if (TextUtils.isEmpty(mQuery)) {
             return Single.just(Response.success(new ApiHelpers.DummyPage<>()));
         }
         switch (mSelectedSearchType) {
-            case SEARCH_TYPE_REPO: return makeRepoSearchSingle(page, bypassCache);
-            case SEARCH_TYPE_USER: return makeUserSearchSingle(page, bypassCache);
-            case SEARCH_TYPE_CODE: return makeCodeSearchSingle(page, bypassCache);
+            case SEARCH_TYPE_REPO: return makeRepoSearchSingle(page, pageSize, bypassCache);
+            case SEARCH_TYPE_USER: return makeUserSearchSingle(page, pageSize, bypassCache);
+            case SEARCH_TYPE_CODE: return makeCodeSearchSingle(page, pageSize, bypassCache);
         }
         throw new IllegalStateException("Unexpected search type " + mSelectedSearchType);
     }
@@ -288,7 +289,7 @@ public class SearchFragment extends PagedDataBaseFragment<Object> implements
 
     private void loadResults() {
         mSearch.clearFocus();
-        onRefresh();
+        reload();
     }
 
     private void updateSearchViewHint() {
@@ -318,8 +319,9 @@ public class SearchFragment extends PagedDataBaseFragment<Object> implements
         emptyView.setText(emptyTextResId);
     }
 
-    private Single<Response<Page<Object>>> makeRepoSearchSingle(long page, boolean bypassCache) {
-        SearchService service = ServiceFactory.get(SearchService.class, bypassCache);
+    private Single<Response<Page<Object>>> makeRepoSearchSingle(long page, int pageSize,
+            boolean bypassCache) {
+        SearchService service = ServiceFactory.get(SearchService.class, bypassCache, pageSize);
         String params = mQuery + " fork:true";
 
         return service.searchRepositories(params, null, null, page)
@@ -330,15 +332,18 @@ public class SearchFragment extends PagedDataBaseFragment<Object> implements
                 .compose(RxUtils.mapFailureToValue(422, Response.success(new ApiHelpers.DummyPage<>())));
     }
 
-    private Single<Response<Page<Object>>> makeUserSearchSingle(long page, boolean bypassCache) {
-        final SearchService service = ServiceFactory.get(SearchService.class, bypassCache);
+    private Single<Response<Page<Object>>> makeUserSearchSingle(long page, int pageSize,
+            boolean bypassCache) {
+        final SearchService service =
+                ServiceFactory.get(SearchService.class, bypassCache, pageSize);
         return service.searchUsers(mQuery, null, null, page)
                 .compose(result -> RxUtils.searchPageAdapter(result, item -> item));
     }
 
-    private Single<Response<Page<Object>>> makeCodeSearchSingle(long page, boolean bypassCache) {
+    private Single<Response<Page<Object>>> makeCodeSearchSingle(long page, int pageSize,
+            boolean bypassCache) {
         SearchService service = ServiceFactory.get(SearchService.class, bypassCache,
-                "application/vnd.github.v3.text-match+json", null, null);
+                "application/vnd.github.v3.text-match+json", null, pageSize);
 
         return service.searchCode(mQuery, null, null, page)
                 .compose(result -> RxUtils.searchPageAdapter(result, item -> item));
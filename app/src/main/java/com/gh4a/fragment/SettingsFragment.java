@@ -23,10 +23,15 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import org.json.JSONException;
+
+import com.gh4a.BuildConfig;
 import com.gh4a.Gh4Application;
 import com.gh4a.R;
+import com.gh4a.ServiceFactory;
 import com.gh4a.activities.IssueListActivity;
 import com.gh4a.activities.RepositoryActivity;
+import com.gh4a.utils.NetworkMetrics;
 import com.gh4a.worker.NotificationsWorker;
 import com.gh4a.widget.IntegerListPreference;
 
@@ -45,13 +50,16 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
     public static final String KEY_CUSTOM_TABS = "use_custom_tabs";
     public static final String KEY_NOTIFICATIONS = "notifications";
     public static final String KEY_NOTIFICATION_INTERVAL = "notification_interval";
+    public static final String KEY_BODY_MEDIA_TYPES = "body_media_types";
     private static final String KEY_ABOUT = "about";
     private static final String KEY_OPEN_SOURCE_COMPONENTS = "open_source_components";
+    private static final String KEY_NETWORK_STATS = "network_stats";
 
     private OnStateChangeListener mListener;
     private IntegerListPreference mThemePref;
     private Preference mAboutPref;
     private Preference mOpenSourcePref;
+    private Preference mNetworkStatsPref;
     private TwoStatePreference mNotificationsPref;
     private IntegerListPreference mNotificationIntervalPref;
 
@@ -79,6 +87,14 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
         mOpenSourcePref = findPreference(KEY_OPEN_SOURCE_COMPONENTS);
         mOpenSourcePref.setOnPreferenceClickListener(this);
 
+        mNetworkStatsPref = findPreference(KEY_NETWORK_STATS);
+        if (BuildConfig.DEBUG) {
+            mNetworkStatsPref.setOnPreferenceClickListener(this);
+        } else {
+            getPreferenceScreen().removePreference(mNetworkStatsPref);
+            getPreferenceScreen().removePreference(findPreference(KEY_BODY_MEDIA_TYPES));
+        }
+
         mNotificationsPref = findPreference(KEY_NOTIFICATIONS);
         mNotificationsPref.setOnPreferenceChangeListener(this);
 
@@ -127,6 +143,10 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
             new OpenSourceComponentListDialogFragment()
                     .show(getChildFragmentManager(), "opensource");
             return true;
+        } else if (pref == mNetworkStatsPref) {
+            new NetworkStatsDialogFragment()
+                    .show(getChildFragmentManager(), "networkstats");
+            return true;
         }
         return false;
     }
@@ -234,6 +254,36 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
         }
     }
 
+    public static class NetworkStatsDialogFragment extends DialogFragment {
+        @NonNull
+        @Override
+        public Dialog onCreateDialog(Bundle savedInstanceState) {
+            NetworkMetrics metrics = ServiceFactory.getNetworkMetrics();
+            String dump = metrics.dump();
+
+            return new AlertDialog.Builder(getContext())
+                    .setTitle(R.string.network_stats)
+                    .setMessage(dump.isEmpty() ? getString(R.string.network_stats_empty) : dump)
+                    .setPositiveButton(R.string.ok, null)
+                    .setNeutralButton(R.string.network_stats_reset, (dialog, which) -> metrics.reset())
+                    .setNegativeButton(R.string.network_stats_export, (dialog, which) -> export(metrics))
+                    .create();
+        }
+
+        private void export(NetworkMetrics metrics) {
+            final String json;
+            try {
+                json = metrics.toJson().toString(2);
+            } catch (JSONException e) {
+                return;
+            }
+            Intent shareIntent = new Intent(Intent.ACTION_SEND);
+            shareIntent.setType("text/plain");
+            shareIntent.putExtra(Intent.EXTRA_TEXT, json);
+            startActivity(Intent.createChooser(shareIntent, getString(R.string.share)));
+        }
+    }
+
     private static class OpenSourceComponentAdapter extends RecyclerView.Adapter<OpenSourceComponentViewHolder> {
         private static final String[][] COMPONENTS = new String[][] {
             { "android-gif-drawable", "https://github.com/koral--/android-gif-drawable" },
@@ -74,6 +74,11 @@ public class StargazerListFragment extends PagedDataBaseFragment<User> {
         return R.string.no_stargazers_found;
     }
 
+    @Override
+    protected boolean supportsRandomAccessPaging() {
+        return true;
+    }
+
     @Override
     public void onItemClick(User user) {
         Intent intent = UserActivity.makeIntent(getActivity(), user);
@@ -116,8 +121,9 @@ public class StargazerListFragment extends PagedDataBaseFragment<User> {
     }
 
     @Override
-    protected Single<Response<Page<User>>> loadPage(int page, boolean bypassCache) {
-        final StarringService service = ServiceFactory.get(StarringService.class, bypassCache);
+    protected Single<Response<Page<User>>> loadPage(int page, int pageSize, boolean bypassCache) {
+        final StarringService service =
+                ServiceFactory.get(StarringService.class, bypassCache, pageSize);
         return service.getStargazers(mRepoOwner, mRepoName, page);
     }
 
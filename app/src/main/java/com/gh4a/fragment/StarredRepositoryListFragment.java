@@ -32,6 +32,7 @@ import com.meisolsson.githubsdk.model.Page;
 import com.meisolsson.githubsdk.model.Repository;
 import com.meisolsson.githubsdk.service.activity.StarringService;
 
+import java.lang.reflect.Type;
 import java.util.HashMap;
 
 import io.reactivex.Single;
@@ -77,7 +78,7 @@ public class StarredRepositoryListFragment extends PagedDataBaseFragment<Reposit
             if (isAdded()) {
                 getActivity().invalidateOptionsMenu();
             }
-            onRefresh();
+            reload();
         }
     }
 
@@ -112,7 +113,7 @@ public class StarredRepositoryListFragment extends PagedDataBaseFragment<Reposit
         mSortOrder = sortOrderAndDirection[0];
         mSortDirection = sortOrderAndDirection[1];
         item.setChecked(true);
-        onRefresh();
+        reload();
         return true;
     }
 
@@ -126,14 +127,26 @@ public class StarredRepositoryListFragment extends PagedDataBaseFragment<Reposit
         return R.string.no_starred_repos_found;
     }
 
+    @Override
+    protected String getSnapshotKey() {
+        return "starred/" + mLogin + "/" + mSortOrder + "/" + mSortDirection;
+    }
+
+    @Override
+    protected Type getSnapshotItemType() {
+        return Repository.class;
+    }
+
     @Override
     public void onItemClick(Repository repository) {
         startActivity(RepositoryActivity.makeIntent(getActivity(), repository));
     }
 
     @Override
-    protected Single<Response<Page<Repository>>> loadPage(int page, boolean bypassCache) {
-        final StarringService service = ServiceFactory.get(StarringService.class, bypassCache);
+    protected Single<Response<Page<Repository>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
+        final StarringService service =
+                ServiceFactory.get(StarringService.class, bypassCache, pageSize);
         final HashMap<String, String> filterData = new HashMap<>();
         filterData.put("sort", mSortOrder);
         filterData.put("direction", mSortDirection);
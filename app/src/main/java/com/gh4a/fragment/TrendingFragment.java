@@ -26,6 +26,7 @@ import com.gh4a.adapter.TrendAdapter;
 import com.gh4a.model.Trend;
 import com.gh4a.utils.SingleFactory;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 import io.reactivex.Single;
@@ -77,6 +78,16 @@ public class TrendingFragment extends ListDataBaseFragment<Trend> implements
         return R.string.no_trends_found;
     }
 
+    @Override
+    protected String getSnapshotKey() {
+        return "trends/" + mType;
+    }
+
+    @Override
+    protected Type getSnapshotItemType() {
+        return Trend.class;
+    }
+
     @Override
     public void onItemClick(Trend trend) {
         String owner = trend.getRepoOwner();
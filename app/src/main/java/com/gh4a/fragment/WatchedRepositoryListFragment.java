@@ -65,8 +65,10 @@ public class WatchedRepositoryListFragment extends PagedDataBaseFragment<Reposit
     }
 
     @Override
-    protected Single<Response<Page<Repository>>> loadPage(int page, boolean bypassCache) {
-        final WatchingService service = ServiceFactory.get(WatchingService.class, bypassCache);
+    protected Single<Response<Page<Repository>>> loadPage(int page, int pageSize,
+            boolean bypassCache) {
+        final WatchingService service =
+                ServiceFactory.get(WatchingService.class, bypassCache, pageSize);
         return service.getWatchedRepositories(mLogin, page);
     }
 }
\ No newline at end of file
@@ -78,6 +78,11 @@ public class WatcherListFragment extends PagedDataBaseFragment<User> {
         return R.string.no_watchers_found;
     }
 
+    @Override
+    protected boolean supportsRandomAccessPaging() {
+        return true;
+    }
+
     @Override
     public void onItemClick(User user) {
         Intent intent = UserActivity.makeIntent(getActivity(), user);
@@ -165,8 +170,9 @@ public class WatcherListFragment extends PagedDataBaseFragment<User> {
     }
 
     @Override
-    protected Single<Response<Page<User>>> loadPage(int page, boolean bypassCache) {
-        final WatchingService service = ServiceFactory.get(WatchingService.class, bypassCache);
+    protected Single<Response<Page<User>>> loadPage(int page, int pageSize, boolean bypassCache) {
+        final WatchingService service =
+                ServiceFactory.get(WatchingService.class, bypassCache, pageSize);
         return service.getRepositoryWatchers(mRepoOwner, mRepoName, page);
     }
 }
\ No newline at end of file
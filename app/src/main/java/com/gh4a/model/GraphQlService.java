@@ -0,0 +1,13 @@
+package com.gh4a.model;
+
+import java.util.Map;
+
+import io.reactivex.Single;
+import retrofit2.Response;
+import retrofit2.http.Body;
+import retrofit2.http.POST;
+
+public interface GraphQlService {
+    @POST("graphql")
+    Single<Response<Map<String, Object>>> query(@Body Map<String, Object> request);
+}
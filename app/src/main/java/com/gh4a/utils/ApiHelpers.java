@@ -15,6 +15,7 @@ import android.util.Pair;
 import com.gh4a.ApiRequestException;
 import com.gh4a.Gh4Application;
 import com.gh4a.R;
+import com.gh4a.ServiceFactory;
 import com.meisolsson.githubsdk.model.Commit;
 import com.meisolsson.githubsdk.model.GitHubCommentBase;
 import com.meisolsson.githubsdk.model.Issue;
@@ -26,6 +27,7 @@ import com.meisolsson.githubsdk.model.User;
 import com.meisolsson.githubsdk.model.UserType;
 import com.meisolsson.githubsdk.model.git.GitUser;
 
+import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -33,16 +35,19 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.BehaviorSubject;
 import retrofit2.Response;
 
 public class ApiHelpers {
     public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_CONCURRENCY = 4;
 
     public interface IssueState {
         String OPEN = "open";
@@ -274,6 +279,55 @@ public class ApiHelpers {
         throw new ApiRequestException(response);
     }
 
+    /**
+     * Loads data in a stale-while-revalidate fashion: if there's a cached response for the
+     * request, its content is emitted right away, regardless of its age. The request is
+     * then sent to the server in any case, and its result is only emitted if it differs
+     * from the cached one.
+     *
+     * @param allowStale    Whether to emit cached data; pass false if the user explicitly
+     *                      asked for fresh data
+     * @param bypassCache   Passed to {@link ServiceFactory#get(Class, boolean)} for the
+     *                      revalidation request
+     * @param call          Creates the request for the given service
+     */
+    public static <S, T> Observable<T> staleWhileRevalidate(Class<S> serviceClass,
+            boolean allowStale, boolean bypassCache, Function<S, Single<Response<T>>> call) {
+        Single<Response<T>> networkSingle = call.apply(ServiceFactory.get(serviceClass, bypassCache));
+        if (!allowStale) {
+            return networkSingle
+                    .map(ApiHelpers::throwOnFailure)
+                    .toObservable();
+        }
+        Single<Response<T>> cachedSingle = call.apply(ServiceFactory.getCacheOnly(serviceClass, null));
+
+        return Observable.defer(() -> {
+            AtomicReference<T> cachedResult = new AtomicReference<>();
+            Observable<T> cached = cachedSingle
+                    .toObservable()
+                    // there's no cached response if this isn't successful
+                    .filter(response -> response.isSuccessful() && response.body() != null)
+                    .map(response -> response.body())
+                    .doOnNext(cachedResult::set)
+                    .onErrorResumeNext(Observable.empty());
+            Observable<T> revalidated = networkSingle
+                    .toObservable()
+                    .filter(response -> {
+                        okhttp3.Response networkResponse = response.raw().networkResponse();
+                        return cachedResult.get() == null || networkResponse == null
+                                || networkResponse.code() != HttpURLConnection.HTTP_NOT_MODIFIED;
+                    })
+                    .map(ApiHelpers::throwOnFailure)
+                    .filter(result -> !result.equals(cachedResult.get()))
+                    .onErrorResumeNext(error -> {
+                        // Keep showing the cached data if we're offline
+                        return cachedResult.get() != null && error instanceof IOException
+                                ? Observable.empty() : Observable.error(error);
+                    });
+            return cached.concatWith(revalidated);
+        });
+    }
+
     public static class DummyPage<T> extends Page<T> {
         @Nullable
         @Override
@@ -360,8 +414,66 @@ public class ApiHelpers {
         }
 
         public static <T> Single<List<T>> toSingle(PageProducer<T> producer) {
+            return iterate(producer, 1)
+                    .toList()
+                    .map(PageIterator::flatten);
+        }
+
+        /**
+         * Like {@link #toSingle(PageProducer)}, but fetches all pages after the first one
+         * in parallel. The total page count is taken from the first page's Link header;
+         * if it isn't present, the remaining pages are fetched sequentially.
+         *
+         * @param maxConcurrency Maximum number of page requests running at the same time
+         */
+        public static <T> Single<List<T>> toSingle(PageProducer<T> producer, int maxConcurrency) {
+            return toObservable(producer, maxConcurrency)
+                    .toList()
+                    .map(PageIterator::flatten);
+        }
+
+        /**
+         * Emits the items of each page as soon as that page has been loaded, in page order.
+         */
+        public static <T> Observable<List<T>> toObservable(PageProducer<T> producer) {
+            return iterate(producer, 1);
+        }
+
+        /**
+         * Parallel variant of {@link #toObservable(PageProducer)}, see
+         * {@link #toSingle(PageProducer, int)}. Pages are still emitted in page order.
+         */
+        public static <T> Observable<List<T>> toObservable(PageProducer<T> producer,
+                int maxConcurrency) {
+            return producer.getPage(1)
+                    .toObservable()
+                    .compose(PageIterator::evaluateError)
+                    .concatMap(firstPage -> {
+                        Observable<List<T>> first = Observable.just(firstPage.items());
+                        Integer last = firstPage.last();
+                        Integer next = firstPage.next();
+                        if (next == null) {
+                            return first;
+                        }
+                        if (last == null || last <= next) {
+                            return first.concatWith(iterate(producer, next));
+                        }
+                        Observable<List<T>> remaining = Observable.range(next, last - next + 1)
+                                // Retrofit calls execute on the subscribing thread, so
+                                // each page needs its own thread to actually run in parallel
+                                .concatMapEager(page -> producer.getPage(page)
+                                        .subscribeOn(Schedulers.io())
+                                        .toObservable()
+                                        .compose(PageIterator::evaluateError)
+                                        .map(resultPage -> resultPage.items()),
+                                        maxConcurrency, 1);
+                        return first.concatWith(remaining);
+                    });
+        }
+
+        private static <T> Observable<List<T>> iterate(PageProducer<T> producer, int startPage) {
             BehaviorSubject<Optional<Integer>> pageControl =
-                    BehaviorSubject.createDefault(Optional.of(1));
+                    BehaviorSubject.createDefault(Optional.of(startPage));
             return pageControl
                     .concatMap(page -> {
                         if (!page.isPresent()) {
@@ -372,17 +484,17 @@ public class ApiHelpers {
                                 .compose(PageIterator::evaluateError)
                                 .doOnNext(resultPage -> pageControl.onNext(Optional.ofNullable(resultPage.next())))
                                 .map(responsePage -> responsePage.items());
-                    })
-                    .toList()
-                    .map(lists -> {
-                        List<T> result = new ArrayList<>();
-                        for (List<T> l : lists) {
-                            result.addAll(l);
-                        }
-                        return result;
                     });
         }
 
+        private static <T> List<T> flatten(List<List<T>> lists) {
+            List<T> result = new ArrayList<>();
+            for (List<T> l : lists) {
+                result.addAll(l);
+            }
+            return result;
+        }
+
         public static <T> Single<Optional<T>> first(PageProducer<T> producer, Predicate<T> predicate) {
             BehaviorSubject<Optional<Integer>> pageControl =
                     BehaviorSubject.createDefault(Optional.of(1));
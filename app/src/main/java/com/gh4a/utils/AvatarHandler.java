@@ -1,7 +1,15 @@
 package com.gh4a.utils;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import android.content.Context;
 import android.content.res.Resources;
@@ -16,16 +24,15 @@ import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.TransitionDrawable;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
-import android.os.Message;
+import android.os.Process;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.graphics.drawable.RoundedBitmapDrawable;
 import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
-import androidx.collection.LongSparseArray;
 import androidx.collection.LruCache;
 import android.text.TextUtils;
 import android.util.Log;
@@ -36,60 +43,119 @@ import com.gh4a.ServiceFactory;
 import com.meisolsson.githubsdk.model.User;
 
 import okhttp3.OkHttpClient;
+import okio.BufferedSource;
+import okio.Okio;
 
 public class AvatarHandler {
     private static final String TAG = "GravatarHandler";
 
     private static final int MAX_CACHED_IMAGE_SIZE = 60; /* dp - maximum gravatar view size used */
 
-    private static LruCache<Long, Bitmap> sCache;
-    private static int sNextRequestId = 1;
+    // Avatars are small, so loading is mostly bound by network latency
+    private static final int MAX_PARALLEL_LOADS = 4;
+    private static final long IDLE_THREAD_TIMEOUT_MS = 3000;
 
-    private static class Request {
-        long id;
-        String url;
-        ArrayList<ViewDelegate> views;
-    }
-    private static final LongSparseArray<Request> sRequests = new LongSparseArray<>();
-    private static int sMaxImageSizePx = -1;
+    // Avatars are additionally stored on disk in their scaled form, so that they can be
+    // shown without downloading and scaling them again after a restart
+    private static final String DISK_CACHE_DIRECTORY_NAME = "avatars";
+    private static final long MAX_DISK_CACHE_SIZE = 5 * 1024 * 1024;
+    private static final int DISK_CACHE_QUALITY = 90;
+    private static final int DISK_CACHE_WRITES_PER_TRIM = 20;
+    // Avatar URLs don't change when users change their avatar, so the stored avatars
+    // are downloaded again (through the HTTP cache) once they reach this age
+    private static final long DISK_CACHE_MAX_AGE_MS = 3 * 24 * 60 * 60 * 1000;
 
-    private static final int MSG_LOAD = 1;
-    private static final int MSG_LOADED = 2;
-    private static final int MSG_DESTROY = 3;
+    private static final Paint SCALE_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
 
-    private static HandlerThread sWorkerThread = null;
-    private static Handler sWorkerHandler = null;
+    private static LruCache<Long, Bitmap> sCache;
+    private static File sDiskCacheDir;
+    private static int sDiskCacheWritesSinceTrim;
+    private static long sNextRequestPriority = 1;
+
+    private static class Request implements Runnable, Comparable<Request> {
+        final long id;
+        final String url;
+        // Newer requests come first, as they belong to the views bound last,
+        // which are the visible ones while flinging through a list
+        final long priority;
+        final ArrayList<ViewDelegate> views = new ArrayList<>();
+        private volatile boolean mCancelled;
+        private okhttp3.Call mCall;
+
+        Request(long id, String url, long priority) {
+            this.id = id;
+            this.url = url;
+            this.priority = priority;
+        }
 
-    private static final Handler sHandler = new Handler(Looper.getMainLooper()) {
         @Override
-        public void handleMessage(Message msg) {
-            switch (msg.what) {
-                case MSG_LOADED:
-                    processResult(msg.arg1, (Bitmap) msg.obj);
-                    if (sRequests.size() == 0) {
-                        sendEmptyMessageDelayed(MSG_DESTROY, 3000);
-                    }
-                    break;
-                case MSG_DESTROY:
-                    shutdownWorker();
-                    break;
-            }
+        public int compareTo(Request other) {
+            return Long.compare(other.priority, priority);
         }
 
-        private void processResult(long requestId, Bitmap bitmap) {
-            final Request request = sRequests.get(requestId);
-            if (request != null && bitmap != null) {
-                synchronized (AvatarHandler.class) {
-                    sCache.put(request.id, bitmap);
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Bitmap bitmap = null;
+            try {
+                bitmap = loadBitmap(this);
+            } catch (IOException e) {
+                if (!mCancelled) {
+                    Log.e(TAG, "Couldn't fetch gravatar from URL " + url, e);
                 }
+            }
+            final Bitmap result = bitmap;
+            sHandler.post(() -> processResult(this, result));
+        }
 
-                for (ViewDelegate view : request.views) {
-                    applyAvatarToView(view, bitmap);
-                }
+        synchronized okhttp3.Call newCall(OkHttpClient client, okhttp3.Request request)
+                throws IOException {
+            if (mCancelled) {
+                throw new IOException("Canceled");
+            }
+            mCall = client.newCall(request);
+            return mCall;
+        }
+
+        synchronized void cancel() {
+            mCancelled = true;
+            if (mCall != null) {
+                mCall.cancel();
             }
-            sRequests.remove(requestId);
         }
-    };
+    }
+
+    // Pending requests by user ID and by view, only accessed on the main thread
+    private static final HashMap<Long, Request> sRequests = new HashMap<>();
+    private static final HashMap<ViewDelegate, Request> sRequestsByView = new HashMap<>();
+    private static int sMaxImageSizePx = -1;
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            MAX_PARALLEL_LOADS, MAX_PARALLEL_LOADS,
+            IDLE_THREAD_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(), runnable -> new Thread(runnable, "AvatarLoader"));
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static void processResult(Request request, Bitmap loadedBitmap) {
+        Bitmap bitmap = loadedBitmap != null ? putIntoCache(request.id, loadedBitmap) : null;
+        if (sRequests.get(request.id) != request) {
+            // Canceled while loading
+            return;
+        }
+        sRequests.remove(request.id);
+        for (ViewDelegate view : request.views) {
+            sRequestsByView.remove(view);
+            if (bitmap != null) {
+                applyAvatarToView(view, bitmap);
+            }
+        }
+    }
 
     public static void assignAvatar(ImageView view, User user) {
         if (user == null || user.id() == null) {
@@ -118,18 +184,29 @@ public class AvatarHandler {
             return cachedBitmap;
         }
         try {
-            Bitmap bitmap = fetchBitmap(makeUrl(user.avatarUrl(), user.id()));
-            if (bitmap != null) {
-                synchronized (AvatarHandler.class) {
-                    sCache.put(user.id(), bitmap);
-                }
-            }
-            return bitmap;
+            Request request = new Request(user.id(), makeUrl(user.avatarUrl(), user.id()), 0);
+            Bitmap bitmap = loadBitmap(request);
+            return bitmap != null ? putIntoCache(user.id(), bitmap) : null;
         } catch (IOException e) {
             return null;
         }
     }
 
+    /**
+     * @return The bitmap to use for the user, which is the already cached one if
+     *         the avatar was loaded twice
+     */
+    private static synchronized Bitmap putIntoCache(long id, Bitmap bitmap) {
+        Bitmap cached = sCache.get(id);
+        if (cached != null) {
+            // Unlike the cached bitmap, the new one was never displayed, so it can be reused
+            BitmapPool.release(bitmap);
+            return cached;
+        }
+        sCache.put(id, bitmap);
+        return bitmap;
+    }
+
     private static Bitmap loadBitmapFromCache(Context context, long id) {
         synchronized (AvatarHandler.class) {
             if (sCache == null) {
@@ -141,6 +218,12 @@ public class AvatarHandler {
 
     private static void assignAvatarInternal(ViewDelegate view,
             String userName, long userId, String url) {
+        Request pending = sRequestsByView.get(view);
+        if (pending != null && pending.id == userId) {
+            // Rebound to the same user (e.g. after an item change notification) while the
+            // avatar is still loading, so the view already shows the right placeholder
+            return;
+        }
         removeOldRequest(view);
 
         Bitmap bitmap = loadBitmapFromCache(view.getContext(), userId);
@@ -154,28 +237,14 @@ public class AvatarHandler {
             return;
         }
 
-        Request request = getRequestForId(userId);
-        if (request != null) {
-            request.views.add(view);
-            return;
+        Request request = sRequests.get(userId);
+        if (request == null) {
+            request = new Request(userId, makeUrl(url, userId), sNextRequestPriority++);
+            sRequests.put(userId, request);
+            sExecutor.execute(request);
         }
-
-        int requestId = sNextRequestId++;
-        request = new Request();
-        request.id = userId;
-        request.url = makeUrl(url, userId);
-        request.views = new ArrayList<>();
         request.views.add(view);
-        sRequests.put(requestId, request);
-
-        sHandler.removeMessages(MSG_DESTROY);
-        if (sWorkerThread == null) {
-            sWorkerThread = new HandlerThread("GravatarLoader");
-            sWorkerThread.start();
-            sWorkerHandler = new WorkerHandler(sWorkerThread.getLooper());
-        }
-        Message msg = sWorkerHandler.obtainMessage(MSG_LOAD, requestId, 0, request.url);
-        msg.sendToTarget();
+        sRequestsByView.put(view, request);
     }
 
     private static void initialize(Context context) {
@@ -183,13 +252,9 @@ public class AvatarHandler {
         // Use 10% of the available memory or 1MB for the cache, whatever is larger
         final int limit = Math.max(maxMemory / 10, 1024);
 
+        // Evicted avatars may still be displayed, so they're left to the garbage collector
+        // instead of being passed to the bitmap pool
         sCache = new LruCache<Long, Bitmap>(limit) {
-            @Override
-            protected void entryRemoved(boolean evicted, Long key, Bitmap oldValue, Bitmap newValue) {
-                super.entryRemoved(evicted, key, oldValue, newValue);
-                oldValue.recycle();
-            }
-
             @Override
             protected int sizeOf(Long key, Bitmap value) {
                 final long sizeInBytes = value.getAllocationByteCount();
@@ -197,6 +262,8 @@ public class AvatarHandler {
             }
         };
 
+        sDiskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIRECTORY_NAME);
+
         Resources res = context.getResources();
         sMaxImageSizePx = Math.round(res.getDisplayMetrics().density * MAX_CACHED_IMAGE_SIZE);
     }
@@ -227,42 +294,143 @@ public class AvatarHandler {
         }
     }
 
-    private static Request getRequestForId(long id) {
-        int count = sRequests.size();
-        for (int i = 0; i < count; i++) {
-            Request request = sRequests.valueAt(i);
-            if (request.id == id) {
-                return request;
+    private static void removeOldRequest(ViewDelegate view) {
+        Request request = sRequestsByView.remove(view);
+        if (request == null) {
+            return;
+        }
+        request.views.remove(view);
+        if (request.views.isEmpty()) {
+            // The view was rebound (e.g. recycled during a fling) before its avatar arrived
+            sRequests.remove(request.id);
+            request.cancel();
+        }
+    }
+
+    private static Bitmap loadBitmap(Request request) throws IOException {
+        File cacheFile = getDiskCacheFile(request);
+        // The modification time is the time the file was written
+        long age = System.currentTimeMillis() - cacheFile.lastModified();
+        if (age < DISK_CACHE_MAX_AGE_MS) {
+            Bitmap bitmap = readFromDiskCache(cacheFile);
+            if (bitmap != null) {
+                return bitmap;
+            }
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = fetchBitmap(request);
+        } catch (IOException e) {
+            // An outdated avatar is better than none, e.g. while being offline
+            Bitmap outdated = readFromDiskCache(cacheFile);
+            if (outdated != null && !request.mCancelled) {
+                return outdated;
             }
+            throw e;
+        }
+        if (bitmap != null) {
+            writeToDiskCache(cacheFile, bitmap);
         }
-        return null;
+        return bitmap;
     }
 
-    private static void removeOldRequest(ViewDelegate view) {
-        int count = sRequests.size();
-        for (int i = 0; i < count; i++) {
-            Request request = sRequests.valueAt(i);
-            if (request.views.remove(view)) {
-                if (request.views.isEmpty()) {
-                    if (sWorkerHandler != null) {
-                        sWorkerHandler.removeMessages(MSG_LOAD, request.url);
-                    }
-                    sRequests.removeAt(i);
-                }
-                return;
+    private static File getDiskCacheFile(Request request) {
+        return new File(sDiskCacheDir, request.id + "_" + sMaxImageSizePx + ".webp");
+    }
+
+    private static Bitmap readFromDiskCache(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] data;
+        try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+            data = source.readByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+        // Already scaled, so there's no need for decoding the bounds first
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.outWidth = sMaxImageSizePx;
+        options.outHeight = sMaxImageSizePx;
+        Bitmap bitmap = BitmapPool.decodeByteArray(data, options);
+        if (bitmap == null) {
+            file.delete();
+            return null;
+        }
+        bitmap.setDensity(Bitmap.DENSITY_NONE);
+        return bitmap;
+    }
+
+    private static void writeToDiskCache(File file, Bitmap bitmap) {
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        File tempFile = new File(directory, file.getName() + "." + Thread.currentThread().getId());
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            bitmap.compress(getDiskCacheFormat(), DISK_CACHE_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't write avatar to disk cache", e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+        }
+
+        boolean needsTrim;
+        synchronized (AvatarHandler.class) {
+            needsTrim = ++sDiskCacheWritesSinceTrim >= DISK_CACHE_WRITES_PER_TRIM;
+            if (needsTrim) {
+                sDiskCacheWritesSinceTrim = 0;
+            }
+        }
+        if (needsTrim) {
+            trimDiskCache();
+        }
+    }
+
+    private static void trimDiskCache() {
+        File[] files = sDiskCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long totalSize = 0;
+        for (File file : files) {
+            totalSize += file.length();
+        }
+        if (totalSize <= MAX_DISK_CACHE_SIZE) {
+            return;
+        }
+        // Delete the oldest avatars first, as they would need to be refreshed soonest
+        Arrays.sort(files, (lhs, rhs) -> Long.compare(lhs.lastModified(), rhs.lastModified()));
+        for (File file : files) {
+            if (totalSize <= MAX_DISK_CACHE_SIZE) {
+                break;
+            }
+            long size = file.length();
+            if (file.delete()) {
+                totalSize -= size;
             }
         }
     }
 
-    private static Bitmap fetchBitmap(String url) throws IOException {
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat getDiskCacheFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+
+    private static Bitmap fetchBitmap(Request avatarRequest) throws IOException {
         OkHttpClient client = ServiceFactory.getImageHttpClient();
         okhttp3.Request request = new okhttp3.Request.Builder()
-                .url(url)
+                .url(avatarRequest.url)
                 .build();
 
         byte[] data;
 
-        try (okhttp3.Response response = client.newCall(request).execute()) {
+        try (okhttp3.Response response = avatarRequest.newCall(client, request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("HTTP failure code " + response.code());
             }
@@ -271,64 +439,35 @@ public class AvatarHandler {
 
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
-
         BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
 
-        options.inJustDecodeBounds = false;
-
-        final int widthRatio = options.outWidth / sMaxImageSizePx;
-        final int heightRatio = options.outHeight / sMaxImageSizePx;
-        options.inSampleSize = Math.min(heightRatio, widthRatio);
-
-        Bitmap unscaled = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        options.inSampleSize = BitmapPool.calculateSampleSizeForMinimum(
+                options.outWidth, options.outHeight, sMaxImageSizePx, sMaxImageSizePx);
+        Bitmap unscaled = BitmapPool.decodeByteArray(data, options);
         if (unscaled == null) {
             return null;
         }
 
-        // We'll scale the image to the desired density
-        unscaled.setDensity(0);
-
         float widthScale = (float) sMaxImageSizePx / (float) unscaled.getWidth();
         float heightScale = (float) sMaxImageSizePx / (float) unscaled.getHeight();
         float scaleFactor = Math.min(1, Math.min(widthScale, heightScale));
-
-        Bitmap scaled = Bitmap.createScaledBitmap(unscaled,
-                (int) (scaleFactor * unscaled.getWidth()),
-                (int) (scaleFactor * unscaled.getHeight()), true);
-        if (scaled != unscaled) {
-            unscaled.recycle();
+        if (scaleFactor == 1) {
+            unscaled.setDensity(Bitmap.DENSITY_NONE);
+            return unscaled;
         }
-        return scaled;
-    }
 
-    private static void shutdownWorker() {
-        if (sWorkerThread != null) {
-            sWorkerThread.getLooper().quit();
-            sWorkerHandler = null;
-            sWorkerThread = null;
-        }
-    }
-
-    private static class WorkerHandler extends Handler {
-        public WorkerHandler(Looper looper) {
-            super(looper);
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            switch (msg.what) {
-                case MSG_LOAD:
-                    String url = (String) msg.obj;
-                    Bitmap bitmap = null;
-                    try {
-                        bitmap = fetchBitmap(url);
-                    } catch (IOException e) {
-                        Log.e(TAG, "Couldn't fetch gravatar from URL " + url, e);
-                    }
-                    sHandler.obtainMessage(MSG_LOADED, msg.arg1, 0, bitmap).sendToTarget();
-                    break;
-            }
-        }
+        // We'll scale the image to the desired density
+        int width = Math.max(1, (int) (scaleFactor * unscaled.getWidth()));
+        int height = Math.max(1, (int) (scaleFactor * unscaled.getHeight()));
+        Bitmap scaled = BitmapPool.obtain(width, height);
+        scaled.setDensity(Bitmap.DENSITY_NONE);
+        Canvas canvas = new Canvas(scaled);
+        canvas.drawBitmap(unscaled, null, new Rect(0, 0, width, height), SCALE_PAINT);
+        BitmapPool.release(unscaled);
+        return scaled;
     }
 
     public static class DefaultAvatarDrawable extends Drawable {
@@ -461,6 +600,10 @@ public class AvatarHandler {
         public boolean equals(Object obj) {
             return obj instanceof ImageViewDelegate && ((ImageViewDelegate) obj).mView == mView;
         }
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mView);
+        }
     }
 
     private static class MenuItemDelegate implements ViewDelegate {
@@ -486,5 +629,9 @@ public class AvatarHandler {
         public boolean equals(Object obj) {
             return obj instanceof MenuItemDelegate && ((MenuItemDelegate) obj).mItem == mItem;
         }
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mItem);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+package com.gh4a.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of bitmaps that are no longer displayed, whose pixel buffers are reused when decoding
+ * new images via {@link BitmapFactory.Options#inBitmap}. This avoids allocating (and later
+ * collecting) a new buffer for every avatar and inline image that scrolls into view.
+ * Bitmaps are bucketed by their allocation size; the least recently released ones are
+ * dropped once the pool exceeds its budget.
+ */
+public class BitmapPool {
+    private static final String TAG = "BitmapPool";
+
+    private static final Bitmap.Config CONFIG = Bitmap.Config.ARGB_8888;
+    // Use 1/16 of the available memory, but at least 1MB
+    private static final long MAX_SIZE =
+            Math.max(Runtime.getRuntime().maxMemory() / 16, 1024 * 1024);
+    // Don't waste big buffers on small images
+    private static final int MAX_SIZE_SLACK = 4;
+
+    private static final TreeMap<Integer, ArrayDeque<Bitmap>> sBuckets = new TreeMap<>();
+    // All pooled bitmaps in release order, for finding the ones to drop first
+    private static final LinkedHashSet<Bitmap> sReleaseOrder = new LinkedHashSet<>();
+    private static long sSize;
+
+    private static int sHits;
+    private static int sMisses;
+    private static int sReleases;
+    private static int sEvictions;
+
+    public static class Stats {
+        public final int hits;
+        public final int misses;
+        public final int releases;
+        public final int evictions;
+        public final int pooledCount;
+        public final long pooledBytes;
+
+        Stats(int hits, int misses, int releases, int evictions,
+                int pooledCount, long pooledBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.releases = releases;
+            this.evictions = evictions;
+            this.pooledCount = pooledCount;
+            this.pooledBytes = pooledBytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d hits, %d misses, %d releases, %d evictions, %d bitmaps (%d KiB) pooled",
+                    hits, misses, releases, evictions, pooledCount, pooledBytes / 1024);
+        }
+    }
+
+    private BitmapPool() {
+    }
+
+    /**
+     * @return A pooled bitmap reconfigured to the given size with transparent contents,
+     *         or a newly allocated one if there's no suitable bitmap in the pool
+     */
+    @NonNull
+    public static Bitmap obtain(int width, int height) {
+        Bitmap bitmap = takeForSize(width * height * 4);
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, CONFIG);
+        }
+        bitmap.reconfigure(width, height, CONFIG);
+        bitmap.eraseColor(0);
+        return bitmap;
+    }
+
+    /**
+     * Decodes an image, reusing a pooled bitmap if possible. For picking that bitmap, the
+     * options must contain the image bounds (as set by a decode with inJustDecodeBounds,
+     * or an upper limit of them if known otherwise) and the wanted inSampleSize. The result
+     * is mutable, so it can be passed to {@link #release(Bitmap)} once it's no longer
+     * displayed.
+     */
+    @Nullable
+    public static Bitmap decodeByteArray(byte[] data, BitmapFactory.Options options) {
+        prepareOptions(options);
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            // The decoder refused the pooled bitmap, e.g. due to an unexpected decoded size
+            release(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+    }
+
+    /**
+     * @return The largest power of two sample size (as required by {@link BitmapFactory})
+     *         that keeps the image at least as big as the wanted size in both dimensions
+     */
+    public static int calculateSampleSizeForMinimum(int width, int height,
+            int minWidth, int minHeight) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= minWidth && height / (sampleSize * 2) >= minHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * @return The smallest power of two sample size (as required by {@link BitmapFactory})
+     *         that makes the image fit into the given width
+     */
+    public static int calculateSampleSizeForMaximumWidth(int width, int maxWidth) {
+        int sampleSize = 1;
+        while (maxWidth > 0 && width / sampleSize > maxWidth) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Passes a bitmap to the pool for reuse. The caller must make sure it isn't displayed
+     * (or otherwise used) anymore. Immutable bitmaps can't be reused and are recycled.
+     */
+    public static synchronized void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || bitmap.getConfig() != CONFIG || size > MAX_SIZE) {
+            bitmap.recycle();
+            return;
+        }
+        if (!sReleaseOrder.add(bitmap)) {
+            // Already pooled
+            return;
+        }
+        ArrayDeque<Bitmap> bucket = sBuckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            sBuckets.put(size, bucket);
+        }
+        bucket.push(bitmap);
+        sSize += size;
+        sReleases++;
+        trimToSize(MAX_SIZE);
+    }
+
+    /**
+     * Drops all pooled bitmaps, e.g. when the system is low on memory.
+     */
+    public static synchronized void clear() {
+        Log.d(TAG, "Clearing pool: " + getStats());
+        trimToSize(0);
+    }
+
+    public static synchronized Stats getStats() {
+        return new Stats(sHits, sMisses, sReleases, sEvictions, sReleaseOrder.size(), sSize);
+    }
+
+    private static void prepareOptions(BitmapFactory.Options options) {
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inPreferredConfig = CONFIG;
+        options.inBitmap = null;
+        if (options.outWidth > 0 && options.outHeight > 0) {
+            int sampleSize = Math.max(options.inSampleSize, 1);
+            // Decoders round the sampled size up or down, so assume the bigger one
+            int width = (options.outWidth + sampleSize - 1) / sampleSize;
+            int height = (options.outHeight + sampleSize - 1) / sampleSize;
+            options.inBitmap = takeForSize(width * height * 4);
+        }
+    }
+
+    @Nullable
+    private static synchronized Bitmap takeForSize(int size) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = sBuckets.ceilingEntry(size);
+        if (entry == null || entry.getKey() > (long) size * MAX_SIZE_SLACK) {
+            sMisses++;
+            return null;
+        }
+        ArrayDeque<Bitmap> bucket = entry.getValue();
+        Bitmap bitmap = bucket.pop();
+        if (bucket.isEmpty()) {
+            sBuckets.remove(entry.getKey());
+        }
+        sReleaseOrder.remove(bitmap);
+        sSize -= entry.getKey();
+        sHits++;
+        return bitmap;
+    }
+
+    private static void trimToSize(long maxSize) {
+        Iterator<Bitmap> iter = sReleaseOrder.iterator();
+        while (sSize > maxSize && iter.hasNext()) {
+            Bitmap bitmap = iter.next();
+            iter.remove();
+            int size = bitmap.getAllocationByteCount();
+            ArrayDeque<Bitmap> bucket = sBuckets.get(size);
+            bucket.remove(bitmap);
+            if (bucket.isEmpty()) {
+                sBuckets.remove(size);
+            }
+            sSize -= size;
+            sEvictions++;
+            bitmap.recycle();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.gh4a.utils;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.collection.LruCache;
+
+import pl.droidsonroids.gif.GifDrawable;
+import pl.droidsonroids.gif.MultiCallback;
+
+/**
+ * App wide cache of decoded inline images, shared by all {@link HttpImageGetter} instances,
+ * so that images used in multiple places (e.g. badges or emojis) are only downloaded and
+ * decoded once. Entries are reference counted: a cached image is only passed to the
+ * {@link BitmapPool} (or recycled, for GIFs) once it was evicted and all users
+ * released it.
+ */
+public class DecodedImageCache {
+    private static final String TAG = "DecodedImageCache";
+
+    // Use 1/10 of the available memory, but at least 2MB
+    private static final int MAX_SIZE_KB =
+            (int) Math.max(Runtime.getRuntime().maxMemory() / 1024 / 10, 2 * 1024);
+
+    private static final LruCache<String, Entry> sCache = new LruCache<String, Entry>(MAX_SIZE_KB) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.getByteCount() / 1024;
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Entry oldValue, Entry newValue) {
+            oldValue.onRemovedFromCache();
+        }
+    };
+
+    /**
+     * A decoded image, which is either a bitmap or a GIF. Users of the image must
+     * call {@link #release()} once they no longer display it.
+     */
+    static class Entry {
+        final Bitmap bitmap;
+        final GifDrawable gif;
+        // Animation callbacks of all views showing the GIF
+        final MultiCallback gifCallbacks;
+        private int mRefCount = 1;
+        private int mAnimatingUsers;
+        private boolean mCached;
+
+        private Entry(Bitmap bitmap, GifDrawable gif) {
+            this.bitmap = bitmap;
+            this.gif = gif;
+            this.gifCallbacks = gif != null ? new MultiCallback() : null;
+            if (gif != null) {
+                gif.stop();
+                gif.setCallback(gifCallbacks);
+            }
+        }
+
+        int getByteCount() {
+            return bitmap != null
+                    ? bitmap.getAllocationByteCount() : (int) gif.getAllocationByteCount();
+        }
+
+        /**
+         * Starts or stops the GIF animation on behalf of one user. The animation runs
+         * while at least one user wants it to.
+         */
+        void setAnimating(boolean animating) {
+            synchronized (DecodedImageCache.class) {
+                mAnimatingUsers += animating ? 1 : -1;
+                if (animating && mAnimatingUsers == 1) {
+                    gif.start();
+                } else if (!animating && mAnimatingUsers == 0) {
+                    gif.stop();
+                }
+            }
+        }
+
+        void release() {
+            synchronized (DecodedImageCache.class) {
+                if (--mRefCount == 0 && !mCached) {
+                    free();
+                }
+            }
+        }
+
+        private void onRemovedFromCache() {
+            synchronized (DecodedImageCache.class) {
+                mCached = false;
+                if (mRefCount == 0) {
+                    free();
+                }
+            }
+        }
+
+        private void free() {
+            if (bitmap != null) {
+                BitmapPool.release(bitmap);
+            } else {
+                gif.setCallback(null);
+                gif.recycle();
+            }
+        }
+    }
+
+    private DecodedImageCache() {
+    }
+
+    /**
+     * @return The cached image for the given URL and maximum width, with its reference
+     *         count incremented, or null if there's none
+     */
+    static Entry acquire(String url, int maxWidth) {
+        synchronized (DecodedImageCache.class) {
+            Entry entry = sCache.get(makeKey(url, maxWidth));
+            if (entry != null) {
+                entry.mRefCount++;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Adds a newly decoded bitmap to the cache. The returned entry is referenced
+     * by the caller.
+     */
+    static Entry put(String url, int maxWidth, Bitmap bitmap) {
+        return putEntry(url, maxWidth, new Entry(bitmap, null));
+    }
+
+    /**
+     * Like {@link #put(String, int, Bitmap)}, but for GIFs.
+     */
+    static Entry put(String url, int maxWidth, GifDrawable gif) {
+        return putEntry(url, maxWidth, new Entry(null, gif));
+    }
+
+    /**
+     * Drops all images not used at the moment, e.g. when the system is low on memory.
+     */
+    public static void clear() {
+        Log.d(TAG, "Clearing cache, size " + sCache.size() + " KiB");
+        synchronized (DecodedImageCache.class) {
+            sCache.evictAll();
+        }
+    }
+
+    private static Entry putEntry(String url, int maxWidth, Entry entry) {
+        synchronized (DecodedImageCache.class) {
+            if (entry.getByteCount() / 1024 <= MAX_SIZE_KB) {
+                // If the image was loaded twice concurrently, the older entry stays
+                // valid for its users and is freed once they released it
+                entry.mCached = true;
+                sCache.put(makeKey(url, maxWidth), entry);
+            }
+            return entry;
+        }
+    }
+
+    private static String makeKey(String url, int maxWidth) {
+        return maxWidth + ":" + url;
+    }
+}
@@ -0,0 +1,206 @@
+package com.gh4a.utils;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.gh4a.Gh4Application;
+import com.gh4a.ServiceFactory;
+import com.gh4a.adapter.RootAdapter;
+import com.meisolsson.githubsdk.service.issues.IssueService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Speculatively loads the issues of the list rows the user keeps looking at, so that the
+ * HTTP cache is warm and the issue screen can show them instantly when one of them is tapped.
+ * Rows are considered interesting if they stay visible for a while after scrolling stopped.
+ * Prefetching is limited by a budget per app session and disabled on metered networks.
+ */
+public class DetailPrefetcher<T> extends RecyclerView.OnScrollListener {
+    public interface TargetResolver<T> {
+        /**
+         * @return Issue or pull request the given item leads to, or null if there's none
+         */
+        @Nullable
+        Target resolve(T item);
+    }
+
+    public static class Target {
+        final String repoOwner;
+        final String repoName;
+        final int number;
+        final boolean isPullRequest;
+
+        public Target(String repoOwner, String repoName, int number, boolean isPullRequest) {
+            this.repoOwner = repoOwner;
+            this.repoName = repoName;
+            this.number = number;
+            this.isPullRequest = isPullRequest;
+        }
+
+        String getKey() {
+            return repoOwner + "/" + repoName + "#" + number;
+        }
+    }
+
+    private static final long DWELL_TIME_MS = 700;
+    private static final int MAX_TARGETS_PER_DWELL = 4;
+    private static final int SESSION_REQUEST_BUDGET = 100;
+    private static final long SESSION_BYTE_BUDGET = 4 * 1024 * 1024;
+    // Targets aren't prefetched again within this time
+    private static final long PREFETCH_VALIDITY_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_REMEMBERED_TARGETS = 200;
+
+    private static final AtomicInteger sRequestCount = new AtomicInteger();
+    // Only accessed from the main thread
+    private static final Map<String, Long> sPrefetchTimes =
+            new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_REMEMBERED_TARGETS;
+        }
+    };
+
+    private final RecyclerView mRecyclerView;
+    private final RootAdapter<T, ?> mAdapter;
+    private final TargetResolver<T> mResolver;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final CompositeDisposable mDisposables = new CompositeDisposable();
+    private final Runnable mDwellRunnable = this::onDwellTimeElapsed;
+    private int mDwellStartFirst = RecyclerView.NO_POSITION;
+    private int mDwellStartLast = RecyclerView.NO_POSITION;
+
+    private final RecyclerView.AdapterDataObserver mDataObserver =
+            new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            scheduleDwellCheck();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            scheduleDwellCheck();
+        }
+    };
+
+    public static <T> DetailPrefetcher<T> attach(RecyclerView recyclerView,
+            RootAdapter<T, ?> adapter, TargetResolver<T> resolver) {
+        DetailPrefetcher<T> prefetcher = new DetailPrefetcher<>(recyclerView, adapter, resolver);
+        recyclerView.addOnScrollListener(prefetcher);
+        adapter.registerAdapterDataObserver(prefetcher.mDataObserver);
+        return prefetcher;
+    }
+
+    private DetailPrefetcher(RecyclerView recyclerView, RootAdapter<T, ?> adapter,
+            TargetResolver<T> resolver) {
+        mRecyclerView = recyclerView;
+        mAdapter = adapter;
+        mResolver = resolver;
+    }
+
+    /**
+     * Stops watching the list and cancels all prefetch requests still running.
+     */
+    public void detach() {
+        mRecyclerView.removeOnScrollListener(this);
+        mAdapter.unregisterAdapterDataObserver(mDataObserver);
+        mHandler.removeCallbacks(mDwellRunnable);
+        mDisposables.clear();
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            scheduleDwellCheck();
+        } else {
+            mHandler.removeCallbacks(mDwellRunnable);
+        }
+    }
+
+    private void scheduleDwellCheck() {
+        mHandler.removeCallbacks(mDwellRunnable);
+        if (mRecyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE
+                || !(mRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager lm = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        mDwellStartFirst = lm.findFirstCompletelyVisibleItemPosition();
+        mDwellStartLast = lm.findLastCompletelyVisibleItemPosition();
+        mHandler.postDelayed(mDwellRunnable, DWELL_TIME_MS);
+    }
+
+    private void onDwellTimeElapsed() {
+        LinearLayoutManager lm = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        if (lm == null || !isEnabled(mRecyclerView.getContext())) {
+            return;
+        }
+        // Only rows that were visible during the whole dwell time are of interest
+        int first = Math.max(mDwellStartFirst, lm.findFirstCompletelyVisibleItemPosition());
+        int last = Math.min(mDwellStartLast, lm.findLastCompletelyVisibleItemPosition());
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int prefetched = 0;
+        for (int i = first; i <= last && prefetched < MAX_TARGETS_PER_DWELL; i++) {
+            int position = mAdapter.getItemPosition(i);
+            Target target = position >= 0 ? mResolver.resolve(mAdapter.getItem(position)) : null;
+            // Only the issue screen shows cached data while revalidating it. The pull request
+            // screen and the timeline always wait for the network, so prefetching their data
+            // would only turn their requests into conditional ones.
+            if (target == null || target.isPullRequest) {
+                continue;
+            }
+            Long lastPrefetchTime = sPrefetchTimes.get(target.getKey());
+            if (lastPrefetchTime != null && now - lastPrefetchTime < PREFETCH_VALIDITY_MS) {
+                continue;
+            }
+            sPrefetchTimes.put(target.getKey(), now);
+            prefetch(target);
+            prefetched++;
+        }
+    }
+
+    private void prefetch(Target target) {
+        // The service needs to be configured like the one used by the issue screen,
+        // otherwise the request won't match the cached response
+        IssueService service = ServiceFactory.get(IssueService.class, false, null, null, null,
+                RateLimitScheduler.Priority.PREFETCH);
+        sRequestCount.incrementAndGet();
+        // The response is only needed for populating the cache, errors don't matter either
+        mDisposables.add(service.getIssue(target.repoOwner, target.repoName, target.number)
+                .subscribeOn(Schedulers.io())
+                .subscribe(response -> {}, error -> {}));
+    }
+
+    private static boolean isEnabled(Context context) {
+        // Anonymous users have a rate limit that is too low for speculative requests
+        if (!Gh4Application.get().isAuthorized()) {
+            return false;
+        }
+        if (sRequestCount.get() >= SESSION_REQUEST_BUDGET) {
+            return false;
+        }
+        long transferredBytes = ServiceFactory.getNetworkMetrics()
+                .getTransferredBytes(RateLimitScheduler.Priority.PREFETCH);
+        if (transferredBytes >= SESSION_BYTE_BUDGET) {
+            return false;
+        }
+        ConnectivityManager cm = context.getSystemService(ConnectivityManager.class);
+        return cm != null && !cm.isActiveNetworkMetered();
+    }
+}
@@ -24,14 +24,15 @@ import android.graphics.Canvas;
 import android.graphics.Point;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.os.Handler;
+import android.os.Process;
 import android.text.Html.ImageGetter;
 import android.text.Spanned;
 import android.text.TextUtils;
 import android.text.style.ImageSpan;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.TextView;
@@ -51,6 +52,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.graphics.drawable.DrawableWrapperCompat;
@@ -98,28 +102,27 @@ public class HttpImageGetter {
     }
 
     private static class GifInfo {
-        final WeakReference<GifDrawable> mDrawable;
+        final DecodedImageCache.Entry mEntry;
         final GifCallback mCallback;
+        private boolean mAnimating;
 
-        public GifInfo(GifDrawable d, List<WeakReference<TextView>> viewRefs) {
+        public GifInfo(DecodedImageCache.Entry entry, List<WeakReference<TextView>> viewRefs) {
             mCallback = new GifCallback(viewRefs);
-            mDrawable = new WeakReference<>(d);
-            d.setCallback(mCallback);
-        }
-        public void destroy() {
-            GifDrawable drawable = mDrawable.get();
-            if (drawable != null) {
-                drawable.setCallback(null);
-                drawable.stop();
-                drawable.recycle();
+            mEntry = entry;
+            // Wrapping the GIF into a placeholder makes the placeholder its callback,
+            // so the GIF must be created after that and point back to all views again
+            entry.gif.setCallback(entry.gifCallbacks);
+            entry.gifCallbacks.addView(mCallback);
+        }
+        public void setAnimating(boolean animating) {
+            if (animating != mAnimating) {
+                mAnimating = animating;
+                mEntry.setAnimating(animating);
             }
         }
-    }
-
-    // interface just used for tracking purposes
-    private static class LoadedBitmapDrawable extends BitmapDrawable {
-        public LoadedBitmapDrawable(Resources res, Bitmap bitmap) {
-            super(res, bitmap);
+        public void destroy() {
+            setAnimating(false);
+            mEntry.gifCallbacks.removeView(mCallback);
         }
     }
 
@@ -127,6 +130,10 @@ public class HttpImageGetter {
         private final String mUrl;
         private final ObjectInfo mInfo;
         private Drawable mLoadedImage;
+        private DecodedImageCache.Entry mLoadedEntry;
+        // Only accessed on the main thread
+        private ImageLoadTask mTask;
+        private boolean mLoaded;
 
         public PlaceholderDrawable(String url, ObjectInfo info, Drawable placeholder) {
             super(placeholder);
@@ -139,30 +146,99 @@ public class HttpImageGetter {
             return mUrl;
         }
 
-        public void addLoadedImage(Drawable image, Handler handler) {
+        /**
+         * @param entry Cache entry the image was created from, if any. Ownership of
+         *              its reference is passed to the placeholder's {@link ObjectInfo}.
+         */
+        public void addLoadedImage(Drawable image, DecodedImageCache.Entry entry,
+                Handler handler) {
             synchronized (this) {
                 mLoadedImage = image;
+                mLoadedEntry = entry;
                 handler.post(this);
             }
         }
 
         @Override
         public void run() {
+            if (mLoadedEntry != null && !mInfo.addLoadedEntry(mLoadedEntry)) {
+                return;
+            }
+            mLoaded = true;
             setDrawable(mLoadedImage);
             setBounds(0, 0, mLoadedImage.getIntrinsicWidth(), mLoadedImage.getIntrinsicHeight());
-            mInfo.invalidateViewsForNewDrawable();
+            if (mLoadedEntry != null && mLoadedEntry.gif != null) {
+                mInfo.addGif(mLoadedEntry);
+            }
+            mInfo.scheduleRedraw();
+        }
+    }
+
+    private static class ImageLoadTask implements Runnable, Comparable<ImageLoadTask> {
+        private final HttpImageGetter mImageGetter;
+        private final PlaceholderDrawable mPlaceholder;
+        // Images of the most recently bound views come first, and within
+        // the same view, the images are loaded from top to bottom
+        private final long mBindSequence;
+        private final int mIndex;
+        private boolean mStarted;
+        private boolean mCanceled;
+
+        ImageLoadTask(HttpImageGetter getter, PlaceholderDrawable placeholder,
+                long bindSequence, int index) {
+            mImageGetter = getter;
+            mPlaceholder = placeholder;
+            mBindSequence = bindSequence;
+            mIndex = index;
+        }
+
+        @Override
+        public int compareTo(ImageLoadTask other) {
+            if (mBindSequence != other.mBindSequence) {
+                return Long.compare(other.mBindSequence, mBindSequence);
+            }
+            return Integer.compare(mIndex, other.mIndex);
+        }
+
+        /**
+         * @return Whether the task was canceled before it started loading
+         */
+        synchronized boolean cancel() {
+            mCanceled = true;
+            return !mStarted;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (mCanceled) {
+                    return;
+                }
+                mStarted = true;
+            }
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            mImageGetter.loadImage(mPlaceholder);
+            mImageGetter.mHandler.post(() -> mPlaceholder.mInfo.onImageLoadDone(this));
         }
     }
 
     private class ObjectInfo implements ImageGetter {
         private final ArrayList<WeakReference<TextView>> mViewRefs = new ArrayList<>();
         private final List<GifInfo> mGifs = new ArrayList<>();
-        private final List<WeakReference<Bitmap>> mBitmaps = new ArrayList<>();
+        // Cache entries of all loaded images, which are released when discarding them
+        private final List<DecodedImageCache.Entry> mLoadedEntries = new ArrayList<>();
+
+        // Queued and running image loads
+        private final List<ImageLoadTask> mTasks = new ArrayList<>();
 
         private CharSequence mHtml;
-        private ImageGetterAsyncTask mTask;
         private boolean mHasStartedImageLoad;
         private boolean mResumed = true;
+        private boolean mRedrawScheduled;
+        private final Choreographer.FrameCallback mRedrawCallback = frameTimeNanos -> {
+            mRedrawScheduled = false;
+            invalidateViewsForNewDrawable();
+        };
 
         void bind(TextView view, String html) {
             addView(view);
@@ -174,24 +250,68 @@ public class HttpImageGetter {
             apply(mHtml);
 
             if (!mHasStartedImageLoad) {
-                ImageSpan[] spans = getImageSpans();
-                if (spans.length > 0) {
-                    ArrayList<PlaceholderDrawable> imagesToLoad = new ArrayList<>();
-                    for (ImageSpan span : spans) {
-                        Drawable d = span.getDrawable();
-                        if (d instanceof PlaceholderDrawable) {
-                            imagesToLoad.add((PlaceholderDrawable) d);
-                        }
-                    }
-                    mTask = new ImageGetterAsyncTask(HttpImageGetter.this, this);
-                    mTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR,
-                            imagesToLoad.toArray(new PlaceholderDrawable[0]));
-                }
+                // Previously loaded images aren't shown by the views anymore
+                discardLoadedImages();
                 mHasStartedImageLoad = true;
             }
+            startImageLoads();
         }
         void unbind(TextView view) {
             removeView(view);
+            if (mViewRefs.isEmpty()) {
+                // Nobody waits for the images anymore; they're loaded again on the next bind
+                cancelImageLoads();
+            }
+        }
+
+        /**
+         * Queues loads for all images that aren't loaded yet, with priority over the
+         * images of views bound earlier.
+         */
+        private void startImageLoads() {
+            // Queue the images again with the new priority
+            cancelImageLoads();
+            long bindSequence = sNextBindSequence++;
+            ImageSpan[] spans = getImageSpans();
+            for (int i = 0; i < spans.length; i++) {
+                Drawable d = spans[i].getDrawable();
+                if (!(d instanceof PlaceholderDrawable)) {
+                    continue;
+                }
+                PlaceholderDrawable placeholder = (PlaceholderDrawable) d;
+                if (!placeholder.mLoaded && placeholder.mTask == null) {
+                    ImageLoadTask task =
+                            new ImageLoadTask(HttpImageGetter.this, placeholder, bindSequence, i);
+                    placeholder.mTask = task;
+                    mTasks.add(task);
+                    sExecutor.execute(task);
+                }
+            }
+        }
+
+        private void cancelImageLoads() {
+            for (int i = mTasks.size() - 1; i >= 0; i--) {
+                ImageLoadTask task = mTasks.get(i);
+                // Running loads are finished, as their result is cached for later
+                if (task.cancel()) {
+                    sExecutor.remove(task);
+                    task.mPlaceholder.mTask = null;
+                    mTasks.remove(i);
+                }
+            }
+        }
+
+        void onImageLoadDone(ImageLoadTask task) {
+            task.mPlaceholder.mTask = null;
+            mTasks.remove(task);
+        }
+
+        void scheduleRedraw() {
+            // Images finishing at about the same time only cause one layout
+            if (!mRedrawScheduled) {
+                mRedrawScheduled = true;
+                Choreographer.getInstance().postFrameCallback(mRedrawCallback);
+            }
         }
 
         void encode(Context context, String html) {
@@ -201,26 +321,19 @@ public class HttpImageGetter {
             }
         }
 
-        void onImageLoadDone() {
-            discardLoadedImages();
-
-            for (ImageSpan span : getImageSpans()) {
-                Drawable d = span.getDrawable();
-                if (d instanceof PlaceholderDrawable) {
-                    PlaceholderDrawable phd = (PlaceholderDrawable) d;
-                    d = phd.getDrawable();
-                }
-                if (d instanceof GifDrawable) {
-                    GifDrawable gd = (GifDrawable) d;
-                    if (mResumed) {
-                        gd.start();
-                    }
-                    mGifs.add(new GifInfo(gd, mViewRefs));
-                } else if (d instanceof LoadedBitmapDrawable) {
-                    BitmapDrawable bd = (BitmapDrawable) d;
-                    mBitmaps.add(new WeakReference<>(bd.getBitmap()));
-                }
+        boolean addLoadedEntry(DecodedImageCache.Entry entry) {
+            if (mDestroyed) {
+                entry.release();
+                return false;
             }
+            mLoadedEntries.add(entry);
+            return true;
+        }
+
+        void addGif(DecodedImageCache.Entry entry) {
+            GifInfo info = new GifInfo(entry, mViewRefs);
+            info.setAnimating(mResumed);
+            mGifs.add(info);
         }
 
         void invalidateViewsForNewDrawable() {
@@ -235,15 +348,7 @@ public class HttpImageGetter {
         void setResumed(boolean resumed) {
             mResumed = resumed;
             for (GifInfo info : mGifs) {
-                GifDrawable drawable = info.mDrawable.get();
-                if (drawable == null) {
-                    continue;
-                }
-                if (resumed) {
-                    drawable.start();
-                } else {
-                    drawable.stop();
-                }
+                info.setAnimating(resumed);
             }
         }
 
@@ -257,25 +362,19 @@ public class HttpImageGetter {
         }
 
         private void discardLoadedImages() {
-            for (WeakReference<Bitmap> ref : mBitmaps) {
-                Bitmap bitmap = ref.get();
-                if (bitmap != null) {
-                    bitmap.recycle();
-                }
-            }
-            mBitmaps.clear();
             for (GifInfo info : mGifs) {
                 info.destroy();
             }
             mGifs.clear();
+            for (DecodedImageCache.Entry entry : mLoadedEntries) {
+                entry.release();
+            }
+            mLoadedEntries.clear();
             mHasStartedImageLoad = false;
         }
 
         void clearHtmlCache() {
-            if (mTask != null) {
-                mTask.cancel(true);
-                mTask = null;
-            }
+            cancelImageLoads();
             mHtml = null;
             mHasStartedImageLoad = false;
         }
@@ -321,6 +420,19 @@ public class HttpImageGetter {
         }
     }
 
+    // Shared by all instances, as the images of all screens use the same connections
+    private static final int MAX_PARALLEL_LOADS = 4;
+    private static final long IDLE_THREAD_TIMEOUT_MS = 3000;
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            MAX_PARALLEL_LOADS, MAX_PARALLEL_LOADS,
+            IDLE_THREAD_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(), runnable -> new Thread(runnable, "ImageLoader"));
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+    // Only accessed on the main thread
+    private static long sNextBindSequence = 1;
+
     private final Handler mHandler = new Handler();
     private final Map<Object, ObjectInfo> mObjectInfos = new HashMap<>();
     private final Drawable mGifPlaceholderDrawable;
@@ -333,7 +445,7 @@ public class HttpImageGetter {
     private final int mMaxWidth;
     private final int mMaxHeight;
 
-    private boolean mDestroyed;
+    private volatile boolean mDestroyed;
 
     public HttpImageGetter(Context context) {
         mContext = context;
@@ -378,6 +490,8 @@ public class HttpImageGetter {
 
     public void destroy() {
         for (ObjectInfo info : mObjectInfos.values()) {
+            info.cancelImageLoads();
+            Choreographer.getInstance().removeFrameCallback(info.mRedrawCallback);
             info.discardLoadedImages();
         }
         mObjectInfos.clear();
@@ -408,93 +522,77 @@ public class HttpImageGetter {
         return info;
     }
 
-    private static class ImageGetterAsyncTask extends AsyncTask<PlaceholderDrawable, Void, Void> {
-        private final HttpImageGetter mImageGetter;
-        private final ObjectInfo mInfo;
-
-        public ImageGetterAsyncTask(HttpImageGetter getter, ObjectInfo info) {
-            mImageGetter = getter;
-            mInfo = info;
+    private void loadImage(PlaceholderDrawable placeholder) {
+        if (mDestroyed) {
+            return;
+        }
+        String source = placeholder.getUrl();
+        DecodedImageCache.Entry entry = source != null
+                ? DecodedImageCache.acquire(source, mMaxWidth) : null;
+        if (entry == null) {
+            entry = loadImageForUrl(source);
+        }
+
+        if (entry == null) {
+            placeholder.addLoadedImage(mErrorDrawable, null, mHandler);
+        } else if (entry.gif != null && !canLoadGif()) {
+            entry.release();
+            placeholder.addLoadedImage(mGifPlaceholderDrawable, null, mHandler);
+        } else if (entry.gif != null) {
+            placeholder.addLoadedImage(entry.gif, entry, mHandler);
+        } else {
+            // The bitmap is shared, but the drawable isn't
+            BitmapDrawable drawable = new BitmapDrawable(mContext.getResources(), entry.bitmap);
+            drawable.setBounds(0, 0, entry.bitmap.getWidth(), entry.bitmap.getHeight());
+            placeholder.addLoadedImage(drawable, entry, mHandler);
         }
+    }
 
-        @Override
-        protected Void doInBackground(PlaceholderDrawable... params) {
-            for (PlaceholderDrawable placeholder : params) {
-                Drawable drawable = mImageGetter.loadImageForUrl(placeholder.getUrl());
-                if (drawable != null) {
-                    placeholder.addLoadedImage(drawable, mImageGetter.mHandler);
-                }
-            }
+    /**
+     * Downloads and decodes an image, and adds it to the shared cache.
+     *
+     * @return The cache entry, referenced by the caller, or null if loading failed
+     */
+    private DecodedImageCache.Entry loadImageForUrl(String source) {
+        HttpUrl url = source != null ? HttpUrl.parse(source) : null;
+        if (url == null) {
             return null;
         }
 
-        @Override
-        protected void onPostExecute(Void result) {
-            if (!isCancelled()) {
-                mInfo.onImageLoadDone();
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+        try (Response response = mClient.newCall(request).execute()) {
+            if (response.body() == null) {
+                return null;
             }
-        }
-    }
-
-    private Drawable loadImageForUrl(String source) {
-        HttpUrl url = source != null ? HttpUrl.parse(source) : null;
-        Bitmap bitmap = null;
-
-        if (!mDestroyed && url != null) {
-            Request request = new Request.Builder()
-                    .url(url)
-                    .build();
-            try (Response response = mClient.newCall(request).execute()) {
-                if (response.body() != null) {
-                    byte[] responseBody = response.body().bytes();
-                    // ByteArrayInputStream supports marking, which is required for
-                    // URLConnection.guessContentTypeFromStream to work
-                    InputStream is = new ByteArrayInputStream(responseBody);
-                    MediaType mediaType = response.body().contentType();
-                    String mime = mediaType != null ? mediaType.toString() : null;
-                    if (mime == null) {
-                        mime = URLConnection.guessContentTypeFromName(source);
-                    }
-                    if (mime == null) {
-                        mime = URLConnection.guessContentTypeFromStream(is);
-                    }
-                    if (mime != null && mime.startsWith("image/svg")) {
-                        bitmap = renderSvgToBitmap(mContext.getResources(), is);
-                    } else {
-                        boolean isGif = mime != null && mime.startsWith("image/gif");
-                        if (isGif) {
-                            if (canLoadGif()) {
-                                GifDrawable d = new GifDrawable(responseBody);
-                                d.setBounds(0, 0, d.getIntrinsicWidth(), d.getIntrinsicHeight());
-                                return d;
-                            } else {
-                                return mGifPlaceholderDrawable;
-                            }
-                        } else {
-                            bitmap = getBitmap(responseBody);
-                        }
-                    }
-                }
-            } catch (IOException e) {
-                Log.e(Gh4Application.LOG_TAG, "Couldn't display image " + url, e);
-                // fall through to showing the error bitmap
+            byte[] responseBody = response.body().bytes();
+            // ByteArrayInputStream supports marking, which is required for
+            // URLConnection.guessContentTypeFromStream to work
+            InputStream is = new ByteArrayInputStream(responseBody);
+            MediaType mediaType = response.body().contentType();
+            String mime = mediaType != null ? mediaType.toString() : null;
+            if (mime == null) {
+                mime = URLConnection.guessContentTypeFromName(source);
+            }
+            if (mime == null) {
+                mime = URLConnection.guessContentTypeFromStream(is);
             }
-        }
 
-        synchronized (this) {
-            if (mDestroyed && bitmap != null) {
-                bitmap.recycle();
-                bitmap = null;
+            if (mime != null && mime.startsWith("image/gif")) {
+                GifDrawable d = new GifDrawable(responseBody);
+                d.setBounds(0, 0, d.getIntrinsicWidth(), d.getIntrinsicHeight());
+                return DecodedImageCache.put(source, mMaxWidth, d);
             }
-        }
 
-        if (bitmap == null) {
-            return mErrorDrawable;
+            Bitmap bitmap = mime != null && mime.startsWith("image/svg")
+                    ? renderSvgToBitmap(mContext.getResources(), is)
+                    : getBitmap(responseBody);
+            return bitmap != null ? DecodedImageCache.put(source, mMaxWidth, bitmap) : null;
+        } catch (IOException e) {
+            Log.e(Gh4Application.LOG_TAG, "Couldn't display image " + url, e);
+            return null;
         }
-
-        BitmapDrawable drawable = new LoadedBitmapDrawable(mContext.getResources(), bitmap);
-        drawable.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        return drawable;
     }
 
     private boolean canLoadGif() {
@@ -515,19 +613,15 @@ public class HttpImageGetter {
         final BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
         BitmapFactory.decodeByteArray(image, 0, image.length, options);
-
-        int scale = 1;
-        while (options.outWidth >= mMaxWidth) {
-            options.outWidth /= 2;
-            options.outHeight /= 2;
-            scale *= 2;
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
         }
 
-        options.inJustDecodeBounds = false;
         options.inDither = false;
-        options.inSampleSize = scale;
+        options.inSampleSize =
+                BitmapPool.calculateSampleSizeForMaximumWidth(options.outWidth, mMaxWidth);
 
-        return BitmapFactory.decodeByteArray(image, 0, image.length, options);
+        return BitmapPool.decodeByteArray(image, options);
     }
 
     private Bitmap renderSvgToBitmap(Resources res, InputStream is) {
@@ -0,0 +1,262 @@
+package com.gh4a.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.gh4a.Gh4Application;
+import com.meisolsson.githubsdk.core.ServiceGenerator;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Types;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.reactivex.schedulers.Schedulers;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+
+/**
+ * Disk backed snapshots of list contents and their scroll position, used for showing a list
+ * immediately after a cold start while its data is loaded again. Snapshots are stored in the
+ * cache directory as gzipped binary records (the items themselves are encoded as JSON using
+ * the SDK's adapters), and the least recently used ones are deleted once the total size
+ * exceeds the budget.
+ */
+public class ListSnapshotStore {
+    private static final String LOGTAG = "ListSnapshotStore";
+    private static final String DIRECTORY_NAME = "list_snapshots";
+    private static final int FORMAT_VERSION = 1;
+    private static final long MAX_TOTAL_SIZE = 4 * 1024 * 1024;
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(7);
+
+    private static File sDirectory;
+
+    public static class Page<T> {
+        public final int offset;
+        public final int pageSize;
+        public final int itemCount;
+        public final Integer nextOffset;
+        public final String etag;
+        // null if the page wasn't loaded when saving the snapshot
+        public final List<T> items;
+
+        public Page(int offset, int pageSize, int itemCount, Integer nextOffset, String etag,
+                List<T> items) {
+            this.offset = offset;
+            this.pageSize = pageSize;
+            this.itemCount = itemCount;
+            this.nextOffset = nextOffset;
+            this.etag = etag;
+            this.items = items;
+        }
+    }
+
+    public static class Snapshot<T> {
+        public final List<Page<T>> pages;
+        public final int scrollPosition;
+        public final int scrollOffset;
+
+        public Snapshot(List<Page<T>> pages, int scrollPosition, int scrollOffset) {
+            this.pages = pages;
+            this.scrollPosition = scrollPosition;
+            this.scrollOffset = scrollOffset;
+        }
+    }
+
+    private ListSnapshotStore() {
+    }
+
+    public static void init(Context context) {
+        sDirectory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    }
+
+    /**
+     * Loads the snapshot stored for the given key on a background thread. Completes
+     * without value if there is no (usable) snapshot.
+     */
+    public static <T> Maybe<Snapshot<T>> load(String key, Type itemType) {
+        return Maybe.fromCallable(() -> read(getFile(key), itemType))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Stores a snapshot for the given key on a background thread. The passed lists
+     * must not be modified afterwards.
+     */
+    public static <T> void save(String key, Type itemType, Snapshot<T> snapshot) {
+        Completable.fromAction(() -> {
+                    File file = getFile(key);
+                    if (file == null) {
+                        return;
+                    }
+                    write(file, itemType, snapshot);
+                    trim();
+                })
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {}, error -> Log.w(LOGTAG, "Could not save snapshot", error));
+    }
+
+    /**
+     * Deletes all snapshots, e.g. because the user logged out.
+     */
+    public static void clear() {
+        Completable.fromAction(() -> {
+                    File[] files = sDirectory != null ? sDirectory.listFiles() : null;
+                    if (files != null) {
+                        for (File file : files) {
+                            file.delete();
+                        }
+                    }
+                })
+                .subscribeOn(Schedulers.io())
+                .subscribe();
+    }
+
+    @Nullable
+    private static File getFile(String key) {
+        if (sDirectory == null) {
+            return null;
+        }
+        // Snapshots contain private data, so keep them separate per account
+        String login = Gh4Application.get().getAuthLogin();
+        String name = ByteString.encodeUtf8(login + "/" + key).sha1().hex();
+        return new File(sDirectory, name);
+    }
+
+    private static <T> Snapshot<T> read(File file, Type itemType) throws IOException {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        if (System.currentTimeMillis() - file.lastModified() > MAX_AGE_MS) {
+            file.delete();
+            return null;
+        }
+        JsonAdapter<List<T>> adapter = getAdapter(itemType);
+        try (BufferedSource source = Okio.buffer(new GzipSource(Okio.source(file)))) {
+            if (source.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int scrollPosition = source.readInt();
+            int scrollOffset = source.readInt();
+            int pageCount = source.readInt();
+            List<Page<T>> pages = new ArrayList<>(pageCount);
+            for (int i = 0; i < pageCount; i++) {
+                int offset = source.readInt();
+                int pageSize = source.readInt();
+                int itemCount = source.readInt();
+                int nextOffset = source.readInt();
+                String etag = readString(source);
+                List<T> items = null;
+                long itemsLength = source.readLong();
+                if (itemsLength >= 0) {
+                    Buffer json = new Buffer();
+                    source.readFully(json, itemsLength);
+                    items = adapter.fromJson(json);
+                }
+                pages.add(new Page<>(offset, pageSize, itemCount,
+                        nextOffset >= 0 ? nextOffset : null, etag, items));
+            }
+            // Mark as recently used
+            file.setLastModified(System.currentTimeMillis());
+            return new Snapshot<>(pages, scrollPosition, scrollOffset);
+        } catch (IOException | RuntimeException e) {
+            // Corrupt or written by an incompatible version, e.g. because a model changed
+            Log.d(LOGTAG, "Discarding unreadable snapshot", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private static <T> void write(File file, Type itemType, Snapshot<T> snapshot)
+            throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create snapshot directory");
+        }
+        JsonAdapter<List<T>> adapter = getAdapter(itemType);
+        File tempFile = new File(directory, file.getName() + ".tmp");
+        try (BufferedSink sink = Okio.buffer(new GzipSink(Okio.sink(tempFile)))) {
+            sink.writeInt(FORMAT_VERSION);
+            sink.writeInt(snapshot.scrollPosition);
+            sink.writeInt(snapshot.scrollOffset);
+            sink.writeInt(snapshot.pages.size());
+            for (Page<T> page : snapshot.pages) {
+                sink.writeInt(page.offset);
+                sink.writeInt(page.pageSize);
+                sink.writeInt(page.itemCount);
+                sink.writeInt(page.nextOffset != null ? page.nextOffset : -1);
+                writeString(sink, page.etag);
+                if (page.items != null) {
+                    Buffer json = new Buffer();
+                    adapter.toJson(json, page.items);
+                    sink.writeLong(json.size());
+                    sink.writeAll(json);
+                } else {
+                    sink.writeLong(-1);
+                }
+            }
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not replace snapshot file");
+        }
+    }
+
+    private static synchronized void trim() {
+        File[] files = sDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long totalSize = 0;
+        for (File file : files) {
+            totalSize += file.length();
+        }
+        if (totalSize <= MAX_TOTAL_SIZE) {
+            return;
+        }
+        // Delete the least recently used snapshots first
+        Arrays.sort(files, (lhs, rhs) -> Long.compare(lhs.lastModified(), rhs.lastModified()));
+        for (File file : files) {
+            if (totalSize <= MAX_TOTAL_SIZE) {
+                break;
+            }
+            long size = file.length();
+            if (file.delete()) {
+                totalSize -= size;
+            }
+        }
+    }
+
+    private static <T> JsonAdapter<List<T>> getAdapter(Type itemType) {
+        return ServiceGenerator.moshi.adapter(Types.newParameterizedType(List.class, itemType));
+    }
+
+    private static void writeString(BufferedSink sink, String value) throws IOException {
+        if (value == null) {
+            sink.writeInt(-1);
+        } else {
+            ByteString bytes = ByteString.encodeUtf8(value);
+            sink.writeInt(bytes.size());
+            sink.write(bytes);
+        }
+    }
+
+    private static String readString(BufferedSource source) throws IOException {
+        int length = source.readInt();
+        return length >= 0 ? source.readUtf8(length) : null;
+    }
+}
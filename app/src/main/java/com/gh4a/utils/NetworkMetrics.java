@@ -0,0 +1,490 @@
+package com.gh4a.utils;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * Collects timing and size statistics of all HTTP calls, grouped by endpoint.
+ * For API calls, the endpoint is the path template of the Retrofit service method
+ * (e.g. "GET /repos/{owner}/{repo}"), for everything else it is the host name.
+ * API calls made with a specific GitHub media type get a separate entry per media type
+ * (e.g. "GET /search/issues [raw]"), so the response sizes of both can be compared.
+ */
+public class NetworkMetrics implements EventListener.Factory {
+    private static final long[] TIME_BUCKETS_MS = {
+        10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+    };
+    private static final long[] SIZE_BUCKETS_BYTES = {
+        1024, 4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024
+    };
+    private static final String MEDIA_TYPE_PREFIX = "application/vnd.github.v3.";
+    private static final String MEDIA_TYPE_SUFFIX = "+json";
+
+    private final Map<String, EndpointStats> mStats = new TreeMap<>();
+    private final Map<RateLimitScheduler.Priority, AtomicLong> mBytesByPriority =
+            new ConcurrentHashMap<>();
+
+    public static class Histogram {
+        private final long[] mBounds;
+        // one more than the bounds for values exceeding the last bound
+        private final long[] mCounts;
+        private long mCount;
+        private long mSum;
+        private long mMax;
+
+        Histogram(long[] bounds) {
+            mBounds = bounds;
+            mCounts = new long[bounds.length + 1];
+        }
+
+        synchronized void record(long value) {
+            int bucket = 0;
+            while (bucket < mBounds.length && value > mBounds[bucket]) {
+                bucket++;
+            }
+            mCounts[bucket]++;
+            mCount++;
+            mSum += value;
+            mMax = Math.max(mMax, value);
+        }
+
+        public synchronized long getCount() {
+            return mCount;
+        }
+
+        public synchronized long getAverage() {
+            return mCount > 0 ? mSum / mCount : 0;
+        }
+
+        /**
+         * @return Upper bound of the bucket containing the given percentile,
+         *         or the maximum value if that's in the last bucket
+         */
+        public synchronized long getPercentile(int percentile) {
+            long threshold = (mCount * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < mBounds.length; i++) {
+                seen += mCounts[i];
+                if (seen >= threshold) {
+                    return Math.min(mBounds[i], mMax);
+                }
+            }
+            return mMax;
+        }
+
+        synchronized JSONObject toJson() throws JSONException {
+            JSONArray buckets = new JSONArray();
+            for (int i = 0; i < mCounts.length; i++) {
+                JSONObject bucket = new JSONObject();
+                bucket.put("le", i < mBounds.length ? mBounds[i] : "inf");
+                bucket.put("count", mCounts[i]);
+                buckets.put(bucket);
+            }
+            return new JSONObject()
+                    .put("count", mCount)
+                    .put("sum", mSum)
+                    .put("max", mMax)
+                    .put("buckets", buckets);
+        }
+    }
+
+    public static class EndpointStats {
+        public final Histogram total = new Histogram(TIME_BUCKETS_MS);
+        public final Histogram dns = new Histogram(TIME_BUCKETS_MS);
+        // includes the TLS handshake
+        public final Histogram connect = new Histogram(TIME_BUCKETS_MS);
+        public final Histogram tls = new Histogram(TIME_BUCKETS_MS);
+        public final Histogram timeToFirstByte = new Histogram(TIME_BUCKETS_MS);
+        public final Histogram bodyBytes = new Histogram(SIZE_BUCKETS_BYTES);
+        private long mCacheHits;
+        private long mConditionalCacheHits;
+        private long mCacheMisses;
+        private long mFailures;
+
+        synchronized void recordCacheResult(Boolean hit, boolean conditional) {
+            if (hit == null) {
+                return;
+            } else if (conditional) {
+                mConditionalCacheHits++;
+            } else if (hit) {
+                mCacheHits++;
+            } else {
+                mCacheMisses++;
+            }
+        }
+
+        synchronized void recordFailure() {
+            mFailures++;
+        }
+
+        public synchronized long getCacheHits() {
+            return mCacheHits;
+        }
+
+        public synchronized long getConditionalCacheHits() {
+            return mConditionalCacheHits;
+        }
+
+        public synchronized long getCacheMisses() {
+            return mCacheMisses;
+        }
+
+        public synchronized long getFailures() {
+            return mFailures;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject cache;
+            synchronized (this) {
+                cache = new JSONObject()
+                        .put("hits", mCacheHits)
+                        .put("conditional_hits", mConditionalCacheHits)
+                        .put("misses", mCacheMisses);
+            }
+            return new JSONObject()
+                    .put("total_ms", total.toJson())
+                    .put("dns_ms", dns.toJson())
+                    .put("connect_ms", connect.toJson())
+                    .put("tls_ms", tls.toJson())
+                    .put("ttfb_ms", timeToFirstByte.toJson())
+                    .put("body_bytes", bodyBytes.toJson())
+                    .put("cache", cache)
+                    .put("failures", getFailures());
+        }
+    }
+
+    @NonNull
+    @Override
+    public EventListener create(@NonNull Call call) {
+        return new CallListener();
+    }
+
+    /**
+     * @return Snapshot of the statistics of all endpoints that were called so far
+     */
+    public synchronized Map<String, EndpointStats> getStats() {
+        return new TreeMap<>(mStats);
+    }
+
+    /**
+     * @return Number of body bytes received over the network since the app was started
+     *         by calls of the given priority
+     */
+    public long getTransferredBytes(RateLimitScheduler.Priority priority) {
+        AtomicLong bytes = mBytesByPriority.get(priority);
+        return bytes != null ? bytes.get() : 0;
+    }
+
+    /**
+     * Estimates how many body bytes were saved by requesting specific media types, by
+     * comparing the average body size of calls made with a specific media type to the
+     * one of calls to the same endpoint made with the default Accept header.
+     *
+     * @return Estimated saved bytes per endpoint and media type, only containing
+     *         endpoints for which calls with both the default and a specific media
+     *         type were recorded
+     */
+    public Map<String, Long> getEstimatedMediaTypeSavings() {
+        Map<String, EndpointStats> stats = getStats();
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            String endpoint = entry.getKey();
+            int mediaTypeStart = endpoint.lastIndexOf(" [");
+            if (mediaTypeStart < 0) {
+                continue;
+            }
+            EndpointStats defaultStats = stats.get(endpoint.substring(0, mediaTypeStart));
+            Histogram bodyBytes = entry.getValue().bodyBytes;
+            if (defaultStats == null || defaultStats.bodyBytes.getCount() == 0
+                    || bodyBytes.getCount() == 0) {
+                continue;
+            }
+            long savedPerCall = defaultStats.bodyBytes.getAverage() - bodyBytes.getAverage();
+            result.put(endpoint, savedPerCall * bodyBytes.getCount());
+        }
+        return result;
+    }
+
+    public synchronized void reset() {
+        mStats.clear();
+    }
+
+    public JSONObject toJson() throws JSONException {
+        JSONObject endpoints = new JSONObject();
+        for (Map.Entry<String, EndpointStats> entry : getStats().entrySet()) {
+            endpoints.put(entry.getKey(), entry.getValue().toJson());
+        }
+        JSONObject savings = new JSONObject();
+        for (Map.Entry<String, Long> entry : getEstimatedMediaTypeSavings().entrySet()) {
+            savings.put(entry.getKey(), entry.getValue());
+        }
+        return new JSONObject()
+                .put("endpoints", endpoints)
+                .put("media_type_savings_bytes", savings);
+    }
+
+    /**
+     * @return Human readable summary of the statistics, slowest endpoints first
+     */
+    public String dump() {
+        List<Map.Entry<String, EndpointStats>> entries = new ArrayList<>(getStats().entrySet());
+        entries.sort((lhs, rhs) -> Long.compare(
+                rhs.getValue().total.getPercentile(90), lhs.getValue().total.getPercentile(90)));
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, EndpointStats> entry : entries) {
+            EndpointStats stats = entry.getValue();
+            sb.append(entry.getKey()).append('\n');
+            sb.append(String.format(Locale.US,
+                    "  %d calls, %d failed, cache %d hit / %d conditional / %d miss\n",
+                    stats.total.getCount(), stats.getFailures(), stats.getCacheHits(),
+                    stats.getConditionalCacheHits(), stats.getCacheMisses()));
+            appendHistogram(sb, "total", stats.total, "ms");
+            appendHistogram(sb, "dns", stats.dns, "ms");
+            appendHistogram(sb, "connect", stats.connect, "ms");
+            appendHistogram(sb, "tls", stats.tls, "ms");
+            appendHistogram(sb, "ttfb", stats.timeToFirstByte, "ms");
+            appendHistogram(sb, "body", stats.bodyBytes, "bytes");
+        }
+
+        Map<String, Long> savings = getEstimatedMediaTypeSavings();
+        if (!savings.isEmpty()) {
+            sb.append("Estimated savings by media type\n");
+            for (Map.Entry<String, Long> entry : savings.entrySet()) {
+                sb.append(String.format(Locale.US, "  %s: %d bytes\n",
+                        entry.getKey(), entry.getValue()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, Histogram histogram,
+            String unit) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        sb.append(String.format(Locale.US, "  %s: avg %d, p50 %d, p90 %d, p99 %d %s\n",
+                name, histogram.getAverage(), histogram.getPercentile(50),
+                histogram.getPercentile(90), histogram.getPercentile(99), unit));
+    }
+
+    private synchronized EndpointStats getOrCreateStats(String endpoint) {
+        EndpointStats stats = mStats.get(endpoint);
+        if (stats == null) {
+            stats = new EndpointStats();
+            mStats.put(endpoint, stats);
+        }
+        return stats;
+    }
+
+    private static String getEndpoint(Request request, String acceptHeader) {
+        Invocation invocation = request.tag(Invocation.class);
+        String path = invocation != null ? getPathTemplate(invocation.method()) : null;
+        if (path == null) {
+            path = request.url().host();
+        }
+        String endpoint = request.method() + " " + path;
+        // The default Accept header lists multiple media types
+        if (acceptHeader != null && acceptHeader.startsWith(MEDIA_TYPE_PREFIX)
+                && acceptHeader.endsWith(MEDIA_TYPE_SUFFIX) && !acceptHeader.contains(",")) {
+            String mediaType = acceptHeader.substring(MEDIA_TYPE_PREFIX.length(),
+                    acceptHeader.length() - MEDIA_TYPE_SUFFIX.length());
+            endpoint += " [" + mediaType + "]";
+        }
+        return endpoint;
+    }
+
+    private static String getPathTemplate(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            if (annotation instanceof GET) {
+                return ((GET) annotation).value();
+            } else if (annotation instanceof POST) {
+                return ((POST) annotation).value();
+            } else if (annotation instanceof PUT) {
+                return ((PUT) annotation).value();
+            } else if (annotation instanceof PATCH) {
+                return ((PATCH) annotation).value();
+            } else if (annotation instanceof DELETE) {
+                return ((DELETE) annotation).value();
+            } else if (annotation instanceof HEAD) {
+                return ((HEAD) annotation).value();
+            }
+        }
+        return null;
+    }
+
+    // One instance per call, all events of a call are delivered sequentially
+    private class CallListener extends EventListener {
+        private long mCallStart;
+        private long mDnsStart;
+        private long mConnectStart;
+        private long mTlsStart;
+        private long mRequestStart;
+        private long mDnsTime;
+        private long mConnectTime;
+        private long mTlsTime;
+        private long mTimeToFirstByte = -1;
+        private long mBodyBytes = -1;
+        // Accept header added by the interceptors, not visible in call.request()
+        private String mAcceptHeader;
+        // null if the cache wasn't consulted
+        private Boolean mCacheHit;
+        private boolean mConditionalCacheHit;
+        private boolean mConnected;
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            mCallStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            mDnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                @NonNull List<InetAddress> inetAddressList) {
+            mDnsTime += System.nanoTime() - mDnsStart;
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                @NonNull Proxy proxy) {
+            mConnectStart = System.nanoTime();
+            mConnected = true;
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                @NonNull Proxy proxy, Protocol protocol) {
+            mConnectTime += System.nanoTime() - mConnectStart;
+        }
+
+        @Override
+        public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                @NonNull Proxy proxy, Protocol protocol, @NonNull IOException ioe) {
+            mConnectTime += System.nanoTime() - mConnectStart;
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call) {
+            mTlsStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+            mTlsTime += System.nanoTime() - mTlsStart;
+        }
+
+        @Override
+        public void requestHeadersStart(@NonNull Call call) {
+            mRequestStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(@NonNull Call call) {
+            mTimeToFirstByte = System.nanoTime() - mRequestStart;
+        }
+
+        @Override
+        public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+            mAcceptHeader = response.request().header("Accept");
+        }
+
+        @Override
+        public void responseBodyEnd(@NonNull Call call, long byteCount) {
+            mBodyBytes = byteCount;
+        }
+
+        @Override
+        public void cacheHit(@NonNull Call call, @NonNull Response response) {
+            mCacheHit = true;
+            mAcceptHeader = response.request().header("Accept");
+        }
+
+        @Override
+        public void cacheConditionalHit(@NonNull Call call, @NonNull Response cachedResponse) {
+            mConditionalCacheHit = true;
+        }
+
+        @Override
+        public void cacheMiss(@NonNull Call call) {
+            mCacheHit = false;
+        }
+
+        @Override
+        public void callEnd(@NonNull Call call) {
+            record(call, false);
+        }
+
+        @Override
+        public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+            record(call, true);
+        }
+
+        private void record(Call call, boolean failed) {
+            EndpointStats stats = getOrCreateStats(getEndpoint(call.request(), mAcceptHeader));
+            stats.total.record(toMillis(System.nanoTime() - mCallStart));
+            if (mConnected) {
+                // Only count calls which had to open a connection, as calls reusing
+                // a pooled connection would distort the averages
+                stats.dns.record(toMillis(mDnsTime));
+                stats.connect.record(toMillis(mConnectTime));
+                stats.tls.record(toMillis(mTlsTime));
+            }
+            if (mTimeToFirstByte >= 0) {
+                stats.timeToFirstByte.record(toMillis(mTimeToFirstByte));
+            }
+            if (mBodyBytes >= 0) {
+                stats.bodyBytes.record(mBodyBytes);
+                RateLimitScheduler.Priority priority =
+                        call.request().tag(RateLimitScheduler.Priority.class);
+                if (priority != null) {
+                    mBytesByPriority.computeIfAbsent(priority, p -> new AtomicLong())
+                            .addAndGet(mBodyBytes);
+                }
+            }
+            // cacheConditionalHit is followed by cacheHit or cacheMiss, depending on the response
+            stats.recordCacheResult(mCacheHit, mConditionalCacheHit && Boolean.TRUE.equals(mCacheHit));
+            if (failed) {
+                stats.recordFailure();
+            }
+        }
+
+        private long toMillis(long nanos) {
+            return nanos / 1000000;
+        }
+    }
+}
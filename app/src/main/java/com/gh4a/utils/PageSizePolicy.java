@@ -0,0 +1,131 @@
+package com.gh4a.utils;
+
+/**
+ * Picks the page size of paged list requests. The first page of a list should arrive
+ * quickly, so it's only sized to fill the screen a few times; on slow links it's kept as
+ * small as possible. Follow-up pages are sized by the recently measured load speed, and
+ * use the maximum size once the user is likely to go through the whole list anyway.
+ */
+public class PageSizePolicy {
+    // The API accepts any size up to ApiHelpers.MAX_PAGE_SIZE, but sticking to a few
+    // sizes makes it more likely that pages can be served from the HTTP cache
+    private static final int[] PAGE_SIZES = { 10, 25, 50, ApiHelpers.MAX_PAGE_SIZE };
+    // Used as long as there's no measurement yet; close to the API default of 30
+    private static final int DEFAULT_PAGE_SIZE = 25;
+    private static final int FIRST_PAGE_SCREENS = 2;
+    private static final int FOLLOW_UP_PAGE_SCREENS = 4;
+    private static final long FIRST_PAGE_TARGET_TIME_MS = 1000;
+    private static final long FOLLOW_UP_PAGE_TARGET_TIME_MS = 2500;
+    // Weight of a new measurement in the moving average of the load speed
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    // Loaded items per second, shared by all lists as it mostly depends on the network.
+    // Negative if nothing was measured yet.
+    private static double sItemsPerSecond = -1;
+
+    private PageSizePolicy() {
+    }
+
+    /**
+     * @param visibleRows Number of list rows fitting into the viewport
+     */
+    public static int getFirstPageSize(int visibleRows) {
+        int wanted = Math.max(visibleRows * FIRST_PAGE_SCREENS, DEFAULT_PAGE_SIZE);
+        return roundToPageSize(wanted, visibleRows, FIRST_PAGE_TARGET_TIME_MS);
+    }
+
+    /**
+     * @param visibleRows Number of list rows fitting into the viewport
+     * @param fullyConsumed Whether the user is likely to go through the whole list,
+     *                      e.g. because they already scrolled through multiple pages
+     */
+    public static int getFollowUpPageSize(int visibleRows, boolean fullyConsumed) {
+        if (fullyConsumed) {
+            return ApiHelpers.MAX_PAGE_SIZE;
+        }
+        int wanted = visibleRows * FOLLOW_UP_PAGE_SCREENS;
+        return roundToPageSize(wanted, visibleRows, FOLLOW_UP_PAGE_TARGET_TIME_MS);
+    }
+
+    /**
+     * Adjusts a page size for a request starting at the given offset. Pages can only start
+     * at multiples of their size, so a size the offset isn't a multiple of would load items
+     * that were already loaded again. Prefers the largest size not exceeding the given one.
+     */
+    public static int alignToOffset(int pageSize, int offset) {
+        for (int i = PAGE_SIZES.length - 1; i >= 0; i--) {
+            if (PAGE_SIZES[i] <= pageSize && offset % PAGE_SIZES[i] == 0) {
+                return PAGE_SIZES[i];
+            }
+        }
+        for (int size : PAGE_SIZES) {
+            if (offset % size == 0) {
+                return size;
+            }
+        }
+        return pageSize;
+    }
+
+    /**
+     * @return Expected time for loading a page of the given size from the network
+     */
+    public static synchronized long estimateLoadTimeMs(int pageSize) {
+        if (sItemsPerSecond <= 0) {
+            return FIRST_PAGE_TARGET_TIME_MS;
+        }
+        return (long) (pageSize * 1000 / sItemsPerSecond);
+    }
+
+    /**
+     * Records the time a page load from the network took. Pages served
+     * from the HTTP cache should not be recorded.
+     */
+    public static synchronized void recordPageLoad(int itemCount, long durationMs) {
+        if (itemCount == 0 || durationMs <= 0) {
+            return;
+        }
+        double itemsPerSecond = itemCount * 1000.0 / durationMs;
+        sItemsPerSecond = sItemsPerSecond < 0
+                ? itemsPerSecond
+                : SMOOTHING_FACTOR * itemsPerSecond + (1 - SMOOTHING_FACTOR) * sItemsPerSecond;
+    }
+
+    private static synchronized int roundToPageSize(int wanted, int visibleRows,
+            long targetTimeMs) {
+        int size = PAGE_SIZES[PAGE_SIZES.length - 1];
+        for (int pageSize : PAGE_SIZES) {
+            if (pageSize >= wanted) {
+                size = pageSize;
+                break;
+            }
+        }
+        if (sItemsPerSecond < 0) {
+            return size;
+        }
+
+        // On fast links, bigger pages come at almost no cost and save round trips
+        int affordable = (int) (sItemsPerSecond * targetTimeMs / 1000);
+        if (affordable >= ApiHelpers.MAX_PAGE_SIZE) {
+            return ApiHelpers.MAX_PAGE_SIZE;
+        }
+        // On slow links, stay within the target time, but at least fill the screen
+        int minimum = Math.min(visibleRows, ApiHelpers.MAX_PAGE_SIZE);
+        while (size > Math.max(affordable, minimum)) {
+            int smaller = getNextSmallerPageSize(size);
+            if (smaller < minimum || smaller == size) {
+                break;
+            }
+            size = smaller;
+        }
+        return size;
+    }
+
+    private static int getNextSmallerPageSize(int size) {
+        for (int i = PAGE_SIZES.length - 1; i >= 0; i--) {
+            if (PAGE_SIZES[i] < size) {
+                return PAGE_SIZES[i];
+            }
+        }
+        return size;
+    }
+}
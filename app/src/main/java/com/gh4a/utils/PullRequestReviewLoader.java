@@ -0,0 +1,343 @@
+package com.gh4a.utils;
+
+import com.gh4a.model.GraphQlService;
+import com.meisolsson.githubsdk.core.ServiceGenerator;
+import com.meisolsson.githubsdk.model.Review;
+import com.meisolsson.githubsdk.model.ReviewComment;
+import com.meisolsson.githubsdk.model.ReviewState;
+import com.squareup.moshi.JsonAdapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Single;
+
+/**
+ * Loads the reviews of a pull request together with all their comments via the GraphQL API.
+ * With the REST API, this needs separate page walks for reviews and review comments, plus
+ * one for each pending review, while a single GraphQL query usually covers all of it.
+ * The results are converted into the REST models, so they can be used interchangeably.
+ */
+public class PullRequestReviewLoader {
+    private static final int REVIEWS_PER_QUERY = 100;
+    private static final int COMMENTS_PER_QUERY = 100;
+
+    private static final String ACTOR_FIELDS = "__typename login avatarUrl url"
+            + " ... on User { databaseId }"
+            + " ... on Bot { databaseId }"
+            + " ... on Organization { databaseId }"
+            + " ... on Mannequin { databaseId }";
+
+    private static final String COMMENT_FIELDS = "id databaseId"
+            + " author { " + ACTOR_FIELDS + " } authorAssociation"
+            + " body bodyHTML createdAt updatedAt url path diffHunk"
+            + " position originalPosition line originalLine"
+            + " commit { oid } originalCommit { oid } replyTo { databaseId }"
+            + " reactionGroups { content reactors { totalCount } }";
+
+    private static final String COMMENT_CONNECTION =
+            "pageInfo { hasNextPage endCursor } nodes { " + COMMENT_FIELDS + " }";
+
+    private static final String REVIEWS_QUERY = "query($owner: String!, $name: String!,"
+            + " $number: Int!, $cursor: String) {"
+            + " repository(owner: $owner, name: $name) { pullRequest(number: $number) {"
+            + " reviews(first: " + REVIEWS_PER_QUERY + ", after: $cursor) {"
+            + " pageInfo { hasNextPage endCursor }"
+            + " nodes { id databaseId author { " + ACTOR_FIELDS + " } authorAssociation"
+            + " body bodyHTML state submittedAt url commit { oid }"
+            + " comments(first: " + COMMENTS_PER_QUERY + ") { " + COMMENT_CONNECTION + " }"
+            + " } } } } }";
+
+    private static final String REVIEW_COMMENTS_QUERY = "query($id: ID!, $cursor: String) {"
+            + " node(id: $id) { ... on PullRequestReview {"
+            + " comments(first: " + COMMENTS_PER_QUERY + ", after: $cursor) { "
+            + COMMENT_CONNECTION + " } } } }";
+
+    private static final Map<String, String> REACTION_KEYS = new HashMap<>();
+    static {
+        REACTION_KEYS.put("THUMBS_UP", "+1");
+        REACTION_KEYS.put("THUMBS_DOWN", "-1");
+        REACTION_KEYS.put("LAUGH", "laugh");
+        REACTION_KEYS.put("HOORAY", "hooray");
+        REACTION_KEYS.put("CONFUSED", "confused");
+        REACTION_KEYS.put("HEART", "heart");
+        REACTION_KEYS.put("ROCKET", "rocket");
+        REACTION_KEYS.put("EYES", "eyes");
+    }
+
+    public static class Result {
+        public final List<Review> reviews;
+        // comments of all reviews except for pending ones
+        public final List<ReviewComment> comments;
+        // comments of pending reviews, by review id
+        public final Map<Long, List<ReviewComment>> pendingReviewComments;
+
+        Result(List<Review> reviews, List<ReviewComment> comments,
+                Map<Long, List<ReviewComment>> pendingReviewComments) {
+            this.reviews = reviews;
+            this.comments = comments;
+            this.pendingReviewComments = pendingReviewComments;
+        }
+    }
+
+    private final GraphQlService mService;
+    private final String mRepoOwner;
+    private final String mRepoName;
+    private final int mPullRequestNumber;
+    private final JsonAdapter<Review> mReviewAdapter = ServiceGenerator.moshi.adapter(Review.class);
+    private final JsonAdapter<ReviewComment> mCommentAdapter =
+            ServiceGenerator.moshi.adapter(ReviewComment.class);
+
+    public PullRequestReviewLoader(GraphQlService service,
+            String repoOwner, String repoName, int pullRequestNumber) {
+        mService = service;
+        mRepoOwner = repoOwner;
+        mRepoName = repoName;
+        mPullRequestNumber = pullRequestNumber;
+    }
+
+    public Single<Result> load() {
+        return loadReviewNodes(null)
+                .flatMap(reviewNodes -> {
+                    List<Single<List<Map<String, Object>>>> commentSingles = new ArrayList<>();
+                    for (Map<String, Object> reviewNode : reviewNodes) {
+                        commentSingles.add(loadRemainingComments(reviewNode));
+                    }
+                    if (commentSingles.isEmpty()) {
+                        return Single.just(new Result(new ArrayList<>(), new ArrayList<>(),
+                                new HashMap<>()));
+                    }
+                    return Single.zip(commentSingles, commentLists -> {
+                        List<Review> reviews = new ArrayList<>();
+                        List<ReviewComment> comments = new ArrayList<>();
+                        Map<Long, List<ReviewComment>> pendingComments = new HashMap<>();
+
+                        for (int i = 0; i < reviewNodes.size(); i++) {
+                            @SuppressWarnings("unchecked")
+                            List<Map<String, Object>> commentNodes =
+                                    (List<Map<String, Object>>) commentLists[i];
+                            Review review = toReview(reviewNodes.get(i));
+                            List<ReviewComment> reviewComments = new ArrayList<>();
+                            for (Map<String, Object> commentNode : commentNodes) {
+                                reviewComments.add(toReviewComment(commentNode, review.id()));
+                            }
+                            reviews.add(review);
+                            if (review.state() == ReviewState.Pending) {
+                                pendingComments.put(review.id(), reviewComments);
+                            } else {
+                                comments.addAll(reviewComments);
+                            }
+                        }
+                        return new Result(reviews, comments, pendingComments);
+                    });
+                });
+    }
+
+    private Single<List<Map<String, Object>>> loadReviewNodes(String cursor) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("owner", mRepoOwner);
+        variables.put("name", mRepoName);
+        variables.put("number", mPullRequestNumber);
+        variables.put("cursor", cursor);
+
+        return query(REVIEWS_QUERY, variables)
+                .flatMap(data -> {
+                    Map<String, Object> connection =
+                            getObject(data, "repository", "pullRequest", "reviews");
+                    List<Map<String, Object>> nodes = getNodes(connection);
+                    String nextCursor = getNextCursor(connection);
+                    if (nextCursor == null) {
+                        return Single.just(nodes);
+                    }
+                    return loadReviewNodes(nextCursor).map(moreNodes -> {
+                        nodes.addAll(moreNodes);
+                        return nodes;
+                    });
+                });
+    }
+
+    // Returns all comments of the review, loading those which didn't fit into the initial query
+    private Single<List<Map<String, Object>>> loadRemainingComments(
+            Map<String, Object> reviewNode) {
+        Map<String, Object> connection = getObject(reviewNode, "comments");
+        List<Map<String, Object>> nodes = getNodes(connection);
+        String nextCursor = getNextCursor(connection);
+        if (nextCursor == null) {
+            return Single.just(nodes);
+        }
+        return loadCommentNodes((String) reviewNode.get("id"), nextCursor).map(moreNodes -> {
+            nodes.addAll(moreNodes);
+            return nodes;
+        });
+    }
+
+    private Single<List<Map<String, Object>>> loadCommentNodes(String reviewId, String cursor) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("id", reviewId);
+        variables.put("cursor", cursor);
+
+        return query(REVIEW_COMMENTS_QUERY, variables)
+                .flatMap(data -> {
+                    Map<String, Object> connection = getObject(data, "node", "comments");
+                    List<Map<String, Object>> nodes = getNodes(connection);
+                    String nextCursor = getNextCursor(connection);
+                    if (nextCursor == null) {
+                        return Single.just(nodes);
+                    }
+                    return loadCommentNodes(reviewId, nextCursor).map(moreNodes -> {
+                        nodes.addAll(moreNodes);
+                        return nodes;
+                    });
+                });
+    }
+
+    private Single<Map<String, Object>> query(String query, Map<String, Object> variables) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("query", query);
+        request.put("variables", variables);
+
+        return mService.query(request)
+                .map(ApiHelpers::throwOnFailure)
+                .map(response -> {
+                    Object errors = response.get("errors");
+                    if (errors instanceof List && !((List<?>) errors).isEmpty()) {
+                        Object error = ((List<?>) errors).get(0);
+                        Object message = error instanceof Map
+                                ? ((Map<?, ?>) error).get("message") : null;
+                        throw new IOException("GraphQL query failed: " + message);
+                    }
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> data = (Map<String, Object>) response.get("data");
+                    if (data == null) {
+                        throw new IOException("GraphQL response contains no data");
+                    }
+                    return data;
+                });
+    }
+
+    private Review toReview(Map<String, Object> node) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", node.get("databaseId"));
+        json.put("node_id", node.get("id"));
+        json.put("user", toUser(getObject(node, "author")));
+        json.put("author_association", node.get("authorAssociation"));
+        json.put("body", node.get("body"));
+        json.put("body_html", node.get("bodyHTML"));
+        json.put("state", node.get("state"));
+        json.put("submitted_at", node.get("submittedAt"));
+        json.put("html_url", node.get("url"));
+        json.put("commit_id", getString(node, "commit", "oid"));
+        json.put("pull_request_url", makePullRequestUrl());
+        return mReviewAdapter.fromJsonValue(json);
+    }
+
+    private ReviewComment toReviewComment(Map<String, Object> node, long reviewId) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", node.get("databaseId"));
+        json.put("node_id", node.get("id"));
+        json.put("pull_request_review_id", reviewId);
+        json.put("user", toUser(getObject(node, "author")));
+        json.put("author_association", node.get("authorAssociation"));
+        json.put("body", node.get("body"));
+        json.put("body_html", node.get("bodyHTML"));
+        json.put("created_at", node.get("createdAt"));
+        json.put("updated_at", node.get("updatedAt"));
+        json.put("html_url", node.get("url"));
+        json.put("pull_request_url", makePullRequestUrl());
+        json.put("path", node.get("path"));
+        json.put("diff_hunk", node.get("diffHunk"));
+        json.put("position", node.get("position"));
+        json.put("original_position", node.get("originalPosition"));
+        json.put("line", node.get("line"));
+        json.put("original_line", node.get("originalLine"));
+        json.put("commit_id", getString(node, "commit", "oid"));
+        json.put("original_commit_id", getString(node, "originalCommit", "oid"));
+        Map<String, Object> replyTo = getObject(node, "replyTo");
+        json.put("in_reply_to_id", replyTo != null ? replyTo.get("databaseId") : null);
+        json.put("reactions", toReactions(node.get("reactionGroups")));
+        return mCommentAdapter.fromJsonValue(json);
+    }
+
+    private static Map<String, Object> toUser(Map<String, Object> actor) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        if (actor == null) {
+            // Deleted accounts are shown as 'ghost' user in the REST API
+            json.put("login", "ghost");
+            json.put("id", 10137);
+            json.put("type", "User");
+            return json;
+        }
+        json.put("login", actor.get("login"));
+        json.put("id", actor.get("databaseId"));
+        json.put("avatar_url", actor.get("avatarUrl"));
+        json.put("html_url", actor.get("url"));
+        json.put("type", actor.get("__typename"));
+        return json;
+    }
+
+    private static Map<String, Object> toReactions(Object reactionGroups) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        long totalCount = 0;
+        for (String key : REACTION_KEYS.values()) {
+            json.put(key, 0);
+        }
+        if (reactionGroups instanceof List) {
+            for (Object group : (List<?>) reactionGroups) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> groupMap = (Map<String, Object>) group;
+                String key = REACTION_KEYS.get(groupMap.get("content"));
+                Map<String, Object> reactors = getObject(groupMap, "reactors");
+                Object count = reactors != null ? reactors.get("totalCount") : null;
+                if (key != null && count instanceof Number) {
+                    json.put(key, count);
+                    totalCount += ((Number) count).longValue();
+                }
+            }
+        }
+        json.put("total_count", totalCount);
+        return json;
+    }
+
+    private String makePullRequestUrl() {
+        // matches the format used by the REST API
+        return "https://api.github.com/repos/" + mRepoOwner + "/" + mRepoName
+                + "/pulls/" + mPullRequestNumber;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getObject(Map<String, Object> object, String... path) {
+        Map<String, Object> current = object;
+        for (String key : path) {
+            if (current == null) {
+                return null;
+            }
+            current = (Map<String, Object>) current.get(key);
+        }
+        return current;
+    }
+
+    private static String getString(Map<String, Object> object, String child, String key) {
+        Map<String, Object> childObject = getObject(object, child);
+        return childObject != null ? (String) childObject.get(key) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> getNodes(Map<String, Object> connection) {
+        if (connection == null || connection.get("nodes") == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>((List<Map<String, Object>>) connection.get("nodes"));
+    }
+
+    private static String getNextCursor(Map<String, Object> connection) {
+        Map<String, Object> pageInfo = getObject(connection, "pageInfo");
+        if (pageInfo == null || !Boolean.TRUE.equals(pageInfo.get("hasNextPage"))) {
+            return null;
+        }
+        return (String) pageInfo.get("endCursor");
+    }
+}
@@ -0,0 +1,167 @@
+package com.gh4a.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Interceptor keeping track of the remaining GitHub API request quota per token, based on
+ * the X-RateLimit-* response headers. When the quota runs low, requests of lower priority
+ * are held back until the quota is reset, so the remaining requests are left for what the
+ * user is looking at. Once the quota is exhausted, requests fail with
+ * {@link RateLimitExceededException} instead of being sent to the server.
+ */
+public class RateLimitScheduler implements Interceptor {
+    public enum Priority {
+        // requests for data the user is waiting for
+        FOREGROUND,
+        // speculative requests for data the user might look at next
+        PREFETCH,
+        // requests done by background workers
+        BACKGROUND
+    }
+
+    // Share of the quota that is reserved for requests of higher priority
+    private static final float PREFETCH_RESERVE = 0.25f;
+    private static final float BACKGROUND_RESERVE = 0.1f;
+    // Low priority requests are delayed at most this long, and fail otherwise
+    private static final long MAX_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long CANCEL_CHECK_INTERVAL_MS = 500;
+
+    private static final String RESOURCE_CORE = "core";
+    private static final String RESOURCE_SEARCH = "search";
+    private static final String RESOURCE_GRAPHQL = "graphql";
+
+    public static class Budget {
+        public final int limit;
+        public final int remaining;
+        // in milliseconds since epoch
+        public final long resetTime;
+
+        Budget(int limit, int remaining, long resetTime) {
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetTime = resetTime;
+        }
+
+        public boolean isExhausted() {
+            return remaining <= 0 && System.currentTimeMillis() < resetTime;
+        }
+    }
+
+    public static class RateLimitExceededException extends IOException {
+        private final long mResetTime;
+
+        RateLimitExceededException(long resetTime) {
+            super("API rate limit exceeded");
+            mResetTime = resetTime;
+        }
+
+        /**
+         * @return Time the quota will be reset, in milliseconds since epoch
+         */
+        public long getResetTime() {
+            return mResetTime;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Budget> mBudgets = new ConcurrentHashMap<>();
+
+    /**
+     * @param authorization Value of the Authorization header the budget applies to
+     * @return The last known budget for the core API, or null if it isn't known yet
+     */
+    @Nullable
+    public Budget getBudget(String authorization) {
+        return mBudgets.get(makeKey(authorization, RESOURCE_CORE));
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        Priority priority = request.tag(Priority.class);
+        String key = makeKey(request.header("Authorization"), resourceFor(request.url()));
+
+        if (!request.cacheControl().onlyIfCached()) {
+            awaitBudget(chain, key, priority != null ? priority : Priority.FOREGROUND);
+        }
+
+        Response response = chain.proceed(request);
+        // Cached responses carry outdated values
+        if (response.networkResponse() != null) {
+            updateBudget(key, response.networkResponse());
+        }
+        return response;
+    }
+
+    private void awaitBudget(Chain chain, String key, Priority priority) throws IOException {
+        while (true) {
+            Budget budget = mBudgets.get(key);
+            long now = System.currentTimeMillis();
+            if (budget == null || now >= budget.resetTime
+                    || budget.remaining > reserveFor(priority, budget.limit)) {
+                return;
+            }
+            long delay = budget.resetTime - now;
+            if (priority == Priority.FOREGROUND || delay > MAX_DELAY_MS) {
+                throw new RateLimitExceededException(budget.resetTime);
+            }
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            try {
+                Thread.sleep(Math.min(delay, CANCEL_CHECK_INTERVAL_MS));
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private void updateBudget(String key, Response response) {
+        String limit = response.header("X-RateLimit-Limit");
+        String remaining = response.header("X-RateLimit-Remaining");
+        String reset = response.header("X-RateLimit-Reset");
+        if (limit == null || remaining == null || reset == null) {
+            return;
+        }
+        try {
+            mBudgets.put(key, new Budget(Integer.parseInt(limit), Integer.parseInt(remaining),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(reset))));
+        } catch (NumberFormatException e) {
+            // ignore malformed headers
+        }
+    }
+
+    private static int reserveFor(Priority priority, int limit) {
+        switch (priority) {
+            case PREFETCH: return (int) (limit * PREFETCH_RESERVE);
+            case BACKGROUND: return (int) (limit * BACKGROUND_RESERVE);
+            default: return 0;
+        }
+    }
+
+    private static String resourceFor(HttpUrl url) {
+        String path = url.encodedPath();
+        if (path.startsWith("/search/")) {
+            return RESOURCE_SEARCH;
+        }
+        if (path.startsWith("/graphql")) {
+            return RESOURCE_GRAPHQL;
+        }
+        return RESOURCE_CORE;
+    }
+
+    private static String makeKey(String authorization, String resource) {
+        return (authorization != null ? authorization : "") + "|" + resource;
+    }
+}
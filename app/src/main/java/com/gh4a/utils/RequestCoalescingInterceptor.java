@@ -0,0 +1,140 @@
+package com.gh4a.utils;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Interceptor that makes identical GET requests which are running at the same time share
+ * a single call. Requests are considered identical if URL, authorization, accepted media
+ * types and cache control match. The response body of the shared call is buffered
+ * in memory, so this must only be used for API calls, not for downloads.
+ */
+public class RequestCoalescingInterceptor implements Interceptor {
+    private static final long CANCEL_CHECK_INTERVAL_MS = 100;
+
+    private final ConcurrentHashMap<String, InFlightCall> mInFlightCalls = new ConcurrentHashMap<>();
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mCoalescedCount = new AtomicLong();
+
+    private static class InFlightCall {
+        final CountDownLatch mDone = new CountDownLatch(1);
+        Response mResponse;
+        byte[] mBody;
+        MediaType mContentType;
+        Exception mError;
+        boolean mCanceled;
+
+        Response copyFor(Request request) {
+            Response.Builder builder = mResponse.newBuilder().request(request);
+            if (mBody != null) {
+                builder.body(ResponseBody.create(mBody, mContentType));
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * @return Number of GET requests that went through this interceptor
+     */
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return Number of GET requests that were served by another request's call
+     */
+    public long getCoalescedCount() {
+        return mCoalescedCount.get();
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+
+        mRequestCount.incrementAndGet();
+
+        String key = makeKey(request);
+        InFlightCall call = new InFlightCall();
+        InFlightCall existing = mInFlightCalls.putIfAbsent(key, call);
+        if (existing != null) {
+            awaitCompletion(chain, existing);
+            if (existing.mResponse != null) {
+                mCoalescedCount.incrementAndGet();
+                return existing.copyFor(request);
+            }
+            if (existing.mError instanceof IOException && !existing.mCanceled) {
+                throw copyError((IOException) existing.mError);
+            }
+            // The call we were waiting for was canceled by its owner, which doesn't
+            // mean we aren't interested in the result anymore. Calls which failed
+            // for reasons other than I/O errors are retried for the same reason.
+            return chain.proceed(request);
+        }
+
+        try {
+            Response response = chain.proceed(request);
+            ResponseBody body = response.body();
+            if (body != null) {
+                call.mContentType = body.contentType();
+                call.mBody = body.bytes();
+            }
+            call.mResponse = response.newBuilder().body(null).build();
+            return call.copyFor(request);
+        } catch (IOException | RuntimeException e) {
+            call.mError = e;
+            call.mCanceled = chain.call().isCanceled();
+            throw e;
+        } finally {
+            mInFlightCalls.remove(key, call);
+            call.mDone.countDown();
+        }
+    }
+
+    /**
+     * @return An exception of the same type as the given one, as callers check for
+     *         specific types (e.g. to show when the rate limit resets)
+     */
+    private static IOException copyError(IOException error) {
+        if (error instanceof RateLimitScheduler.RateLimitExceededException) {
+            long resetTime = ((RateLimitScheduler.RateLimitExceededException) error).getResetTime();
+            IOException copy = new RateLimitScheduler.RateLimitExceededException(resetTime);
+            copy.initCause(error);
+            return copy;
+        }
+        // Rethrow others as they are, which keeps types like SocketTimeoutException
+        return error;
+    }
+
+    private static void awaitCompletion(Chain chain, InFlightCall call) throws IOException {
+        try {
+            while (!call.mDone.await(CANCEL_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (chain.call().isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static String makeKey(Request request) {
+        return request.url() + "|" + request.header("Authorization")
+                + "|" + request.header("Accept") + "|" + request.header("Cache-Control");
+    }
+}
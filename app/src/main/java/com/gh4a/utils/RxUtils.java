@@ -3,6 +3,7 @@ package com.gh4a.utils;
 import android.app.Dialog;
 import android.content.Context;
 import android.os.Bundle;
+import android.text.format.DateFormat;
 import android.util.Log;
 
 import androidx.annotation.StringRes;
@@ -24,6 +25,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -189,7 +191,12 @@ public class RxUtils {
 
             private void setSnackBarContentForError(Snackbar snackbar, Throwable error, PublishProcessor<Integer> retryProcessor) {
                 final int LONG_ERROR_SNACKBAR_DURATION_MS = 8000;
-                if (error instanceof IOException) {
+                if (error instanceof RateLimitScheduler.RateLimitExceededException) {
+                    long resetTime = ((RateLimitScheduler.RateLimitExceededException) error).getResetTime();
+                    snackbar.setText(context.getString(R.string.snackbar_rate_limit_error, errorMessage,
+                                    DateFormat.getTimeFormat(context).format(new Date(resetTime))))
+                            .setDuration(LONG_ERROR_SNACKBAR_DURATION_MS);
+                } else if (error instanceof IOException) {
                     snackbar.setText(context.getString(R.string.snackbar_network_error, errorMessage))
                             .setAction(R.string.retry, view -> retryProcessor.onNext(0));
                 } else if (error instanceof ApiRequestException) {
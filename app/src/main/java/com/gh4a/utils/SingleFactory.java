@@ -57,13 +57,20 @@ public class SingleFactory {
 
     public static Single<NotificationListLoadResult> getNotifications(boolean all,
             boolean participating, boolean bypassCache) {
-        var service = ServiceFactory.getForFullPagedLists(NotificationService.class, bypassCache);
+        return getNotifications(all, participating, bypassCache,
+                RateLimitScheduler.Priority.FOREGROUND);
+    }
+
+    public static Single<NotificationListLoadResult> getNotifications(boolean all,
+            boolean participating, boolean bypassCache, RateLimitScheduler.Priority priority) {
+        var service = ServiceFactory.getWithSlimModels(NotificationService.class, bypassCache,
+                null, ApiHelpers.MAX_PAGE_SIZE, priority);
         final Map<String, Object> options = new HashMap<>();
         options.put("all", all);
         options.put("participating", participating);
 
         return ApiHelpers.PageIterator
-                .toSingle(page -> service.getNotifications(options, page))
+                .toSingle(page -> service.getNotifications(options, page), ApiHelpers.MAX_PAGE_CONCURRENCY)
                 .map(SingleFactory::notificationsToResult);
     }
 
@@ -0,0 +1,246 @@
+package com.gh4a.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.meisolsson.githubsdk.core.ServiceGenerator;
+import com.meisolsson.githubsdk.model.Repository;
+import com.meisolsson.githubsdk.model.User;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+
+/**
+ * Moshi based converter factory for responses which embed lots of users and repositories,
+ * like notification and event lists. Those embedded objects contain dozens of API URL fields
+ * we never use; this converter skips them while streaming the response, so their values are
+ * never materialized. Additionally, equal users and repositories within a response are only
+ * decoded once and share the same model instance.
+ *
+ * The models decoded this way only contain the fields listed in {@link #USER_FIELDS} and
+ * {@link #REPOSITORY_FIELDS}, so they must not be used for screens showing full user or
+ * repository details. Those load their data separately anyway.
+ */
+public class SlimModelConverterFactory extends Converter.Factory {
+    static final Set<String> USER_FIELDS = Set.of("id", "login", "name", "type",
+            "avatar_url", "html_url", "site_admin", "public_repos", "followers");
+    static final Set<String> REPOSITORY_FIELDS = Set.of("id", "name", "full_name", "owner",
+            "description", "html_url", "private", "fork", "language", "default_branch",
+            "stargazers_count", "forks_count");
+
+    // Intern tables of the response currently being converted on this thread
+    private static final ThreadLocal<Map<SlimAdapter<?>, Map<ByteString, Object>>> sInternTables =
+            new ThreadLocal<>();
+
+    // The SDK models need to be decoded by adapters bound to our Moshi instance, otherwise
+    // the users and repositories nested in them wouldn't be decoded by the slim adapters.
+    // Everything else (enums, dates, qualified values) is handled by the SDK's Moshi instance.
+    private static final JsonAdapter.Factory SDK_ADAPTER_FACTORY = (type, annotations, moshi) -> {
+        Class<?> rawType = Types.getRawType(type);
+        if (annotations.isEmpty() && isHandledByMoshi(rawType)) {
+            return null;
+        }
+        if (annotations.isEmpty() && !rawType.isEnum()
+                && rawType.getName().startsWith("com.meisolsson.githubsdk.model.")) {
+            JsonAdapter<?> adapter = createModelAdapter(rawType, type, moshi);
+            if (adapter != null) {
+                return adapter;
+            }
+        }
+        return ServiceGenerator.moshi.adapter(type, annotations);
+    };
+
+    private static final Moshi MOSHI = new Moshi.Builder()
+            .add(new SlimAdapterFactory())
+            .add(SDK_ADAPTER_FACTORY)
+            .build();
+
+    private final MoshiConverterFactory mDelegate = MoshiConverterFactory.create(MOSHI);
+
+    public static SlimModelConverterFactory create() {
+        return new SlimModelConverterFactory();
+    }
+
+    private SlimModelConverterFactory() {
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type,
+            @NonNull Annotation[] annotations, @NonNull Retrofit retrofit) {
+        Converter<ResponseBody, ?> converter =
+                mDelegate.responseBodyConverter(type, annotations, retrofit);
+        if (converter == null) {
+            return null;
+        }
+        return body -> {
+            // Users and repositories are only shared within a response, so that
+            // the intern tables don't keep growing
+            sInternTables.set(new HashMap<>());
+            try {
+                return converter.convert(body);
+            } finally {
+                sInternTables.remove();
+            }
+        };
+    }
+
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(@NonNull Type type,
+            @NonNull Annotation[] parameterAnnotations, @NonNull Annotation[] methodAnnotations,
+            @NonNull Retrofit retrofit) {
+        return mDelegate.requestBodyConverter(type, parameterAnnotations,
+                methodAnnotations, retrofit);
+    }
+
+    static Moshi getMoshi() {
+        return MOSHI;
+    }
+
+    private static boolean isHandledByMoshi(Class<?> rawType) {
+        return rawType.isPrimitive() || rawType.isArray()
+                || rawType == String.class || rawType == Object.class
+                || rawType == Boolean.class || rawType == Integer.class || rawType == Long.class
+                || rawType == Double.class || rawType == Float.class
+                || rawType == List.class || rawType == Collection.class
+                || rawType == Set.class || rawType == Map.class;
+    }
+
+    @Nullable
+    private static JsonAdapter<?> createModelAdapter(Class<?> rawType, Type type, Moshi moshi) {
+        // The SDK models are AutoValue classes, which expose their generated adapters
+        // via a static jsonAdapter() method
+        try {
+            if (type instanceof ParameterizedType) {
+                Method method = rawType.getMethod("jsonAdapter", Moshi.class, Type[].class);
+                Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+                return (JsonAdapter<?>) method.invoke(null, moshi, typeArguments);
+            }
+            Method method = rawType.getMethod("jsonAdapter", Moshi.class);
+            return (JsonAdapter<?>) method.invoke(null, moshi);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static class SlimAdapterFactory implements JsonAdapter.Factory {
+        @Nullable
+        @Override
+        public JsonAdapter<?> create(@NonNull Type type,
+                @NonNull Set<? extends Annotation> annotations, @NonNull Moshi moshi) {
+            if (!annotations.isEmpty()) {
+                return null;
+            }
+            if (type == User.class) {
+                return new SlimAdapter<>(USER_FIELDS, moshi.nextAdapter(this, type, annotations));
+            }
+            if (type == Repository.class) {
+                return new SlimAdapter<>(REPOSITORY_FIELDS,
+                        moshi.nextAdapter(this, type, annotations));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Copies the wanted fields of an object to a buffer without decoding their values,
+     * and decodes the model from that buffer. Objects with identical content are looked
+     * up in the intern table instead of being decoded again.
+     */
+    private static class SlimAdapter<T> extends JsonAdapter<T> {
+        private final Set<String> mFields;
+        private final JsonAdapter<T> mDelegate;
+
+        SlimAdapter(Set<String> fields, JsonAdapter<T> delegate) {
+            mFields = fields;
+            mDelegate = delegate;
+        }
+
+        @Nullable
+        @Override
+        public T fromJson(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonReader.Token.NULL) {
+                return reader.nextNull();
+            }
+
+            Buffer buffer = new Buffer();
+            JsonWriter writer = JsonWriter.of(buffer);
+            writer.beginObject();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (mFields.contains(name)) {
+                    writer.name(name);
+                    try (BufferedSink sink = writer.valueSink();
+                            BufferedSource source = reader.nextSource()) {
+                        sink.writeAll(source);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            writer.endObject();
+            writer.close();
+
+            Map<ByteString, Object> internTable = getInternTable();
+            ByteString content = internTable != null ? buffer.snapshot() : null;
+            if (content != null) {
+                @SuppressWarnings("unchecked")
+                T existing = (T) internTable.get(content);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+
+            T result = mDelegate.fromJson(buffer);
+            if (content != null && result != null) {
+                internTable.put(content, result);
+            }
+            return result;
+        }
+
+        @Override
+        public void toJson(JsonWriter writer, @Nullable T value) throws IOException {
+            mDelegate.toJson(writer, value);
+        }
+
+        @Nullable
+        private Map<ByteString, Object> getInternTable() {
+            Map<SlimAdapter<?>, Map<ByteString, Object>> tables = sInternTables.get();
+            if (tables == null) {
+                return null;
+            }
+            Map<ByteString, Object> table = tables.get(this);
+            if (table == null) {
+                table = new HashMap<>();
+                tables.put(this, table);
+            }
+            return table;
+        }
+    }
+}
@@ -9,17 +9,17 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Shader;
 import android.os.Build;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
+import androidx.collection.LruCache;
 import androidx.core.content.ContextCompat;
 import androidx.work.Constraints;
 import androidx.work.ExistingPeriodicWorkPolicy;
@@ -30,6 +30,7 @@ import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import android.text.SpannableStringBuilder;
+import android.text.TextUtils;
 import android.text.style.TextAppearanceSpan;
 import android.util.Log;
 
@@ -41,6 +42,7 @@ import com.gh4a.model.NotificationHolder;
 import com.gh4a.model.NotificationListLoadResult;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.AvatarHandler;
+import com.gh4a.utils.RateLimitScheduler;
 import com.gh4a.utils.SingleFactory;
 import com.gh4a.utils.StringUtils;
 import com.meisolsson.githubsdk.model.NotificationThread;
@@ -48,12 +50,19 @@ import com.meisolsson.githubsdk.model.Repository;
 import com.meisolsson.githubsdk.model.User;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+
 public class NotificationsWorker extends Worker {
     private static final String TAG = "NotificationsWorker";
 
@@ -65,8 +74,27 @@ public class NotificationsWorker extends Worker {
     private static final String KEY_LAST_NOTIFICATION_SEEN = "last_notification_seen";
     private static final String KEY_LAST_SHOWN_REPO_IDS = "last_notification_repo_ids";
 
+    // Avatars are loaded by a few threads at once, as repos usually belong to different owners
+    private static final int MAX_PARALLEL_AVATAR_LOADS = 4;
+    private static final int MAX_CACHED_ROUND_AVATARS = 30;
+
     private static final Object sPrefsLock = new Object();
 
+    // Rounded avatars used as large notification icons, by user ID. Kept across runs
+    // as long as the process lives, so that they don't need to be loaded every time.
+    private static final LruCache<Long, RoundAvatar> sRoundAvatarCache =
+            new LruCache<>(MAX_CACHED_ROUND_AVATARS);
+
+    private static class RoundAvatar {
+        final String url;
+        final Bitmap bitmap;
+
+        RoundAvatar(String url, Bitmap bitmap) {
+            this.url = url;
+            this.bitmap = bitmap;
+        }
+    }
+
     public static void schedule(Context context, int intervalMinutes) {
         Constraints constraints = new Constraints.Builder()
                 .setRequiredNetworkType(NetworkType.CONNECTED)
@@ -157,7 +185,8 @@ public class NotificationsWorker extends Worker {
         try {
             Log.d(TAG, "Starting notification fetch in background");
             NotificationListLoadResult result =
-                    SingleFactory.getNotifications(false, false, false).blockingGet();
+                    SingleFactory.getNotifications(false, false, false,
+                            RateLimitScheduler.Priority.BACKGROUND).blockingGet();
             for (NotificationHolder holder : result.notifications) {
                 if (holder.notification == null) {
                     notifsGroupedByRepo.add(new ArrayList<>());
@@ -172,6 +201,13 @@ public class NotificationsWorker extends Worker {
             return Result.failure();
         }
 
+        // Load avatars before taking the lock, as the UI may need it in the meantime
+        long lastSeenBeforeLoad = getPrefs(getApplicationContext())
+                .getLong(KEY_LAST_NOTIFICATION_SEEN, 0);
+        Map<Long, Bitmap> avatars = hasNotificationAfter(notifsGroupedByRepo, lastSeenBeforeLoad)
+                ? loadRoundUserAvatars(notifsGroupedByRepo)
+                : Collections.emptyMap();
+
         synchronized (sPrefsLock) {
             SharedPreferences prefs = getPrefs(getApplicationContext());
             long lastCheck = prefs.getLong(KEY_LAST_NOTIFICATION_CHECK, 0);
@@ -205,7 +241,7 @@ public class NotificationsWorker extends Worker {
 
             showSummaryNotification(nm, notifsGroupedByRepo, hasNewNotification);
             for (List<NotificationThread> list : notifsGroupedByRepo) {
-                showRepoNotification(nm, list, lastCheck);
+                showRepoNotification(nm, list, lastCheck, avatars);
                 String repoId = String.valueOf(list.get(0).repository().id());
                 if (lastShownRepoIds != null) {
                     lastShownRepoIds.remove(repoId);
@@ -231,7 +267,7 @@ public class NotificationsWorker extends Worker {
     }
 
     private void showRepoNotification(NotificationManagerCompat nm,
-            List<NotificationThread> notifications, long lastCheck) {
+            List<NotificationThread> notifications, long lastCheck, Map<Long, Bitmap> avatars) {
         final Context context = getApplicationContext();
         Repository repository = notifications.get(0).repository();
         final int id = repository.id().intValue();
@@ -269,7 +305,7 @@ public class NotificationsWorker extends Worker {
                 .build();
 
         NotificationCompat.Builder builder = makeBaseBuilder()
-                .setLargeIcon(loadRoundUserAvatar(repository.owner()))
+                .setLargeIcon(avatars.get(repository.owner().id()))
                 .setGroup(GROUP_ID_GITHUB)
                 .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
                 .setWhen(when)
@@ -393,28 +429,87 @@ public class NotificationsWorker extends Worker {
                 .setColor(ContextCompat.getColor(getApplicationContext(), R.color.octodroid));
     }
 
-    private Bitmap loadRoundUserAvatar(User user) {
+    private static boolean hasNotificationAfter(
+            List<List<NotificationThread>> notificationsPerRepo, long timestamp) {
+        for (List<NotificationThread> list : notificationsPerRepo) {
+            for (NotificationThread n : list) {
+                if (n.updatedAt().getTime() > timestamp) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the rounded avatars of all repository owners, fetching those that
+     * aren't cached in parallel.
+     *
+     * @return Avatars by user ID, missing those that couldn't be loaded
+     */
+    private Map<Long, Bitmap> loadRoundUserAvatars(
+            List<List<NotificationThread>> notificationsPerRepo) {
+        Map<Long, Bitmap> avatars = new HashMap<>();
+        Map<Long, User> missingUsers = new HashMap<>();
+        for (List<NotificationThread> list : notificationsPerRepo) {
+            User owner = list.get(0).repository().owner();
+            if (owner == null || owner.id() == null || avatars.containsKey(owner.id())) {
+                continue;
+            }
+            RoundAvatar cached = sRoundAvatarCache.get(owner.id());
+            if (cached != null && TextUtils.equals(cached.url, owner.avatarUrl())) {
+                avatars.put(owner.id(), cached.bitmap);
+            } else {
+                missingUsers.put(owner.id(), owner);
+            }
+        }
+        if (missingUsers.isEmpty()) {
+            return avatars;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        List<RoundAvatarResult> results = Observable.fromIterable(missingUsers.values())
+                .flatMapMaybe(user -> Maybe.fromCallable(() -> loadRoundUserAvatar(user))
+                        .subscribeOn(Schedulers.io())
+                        .onErrorComplete(), false, MAX_PARALLEL_AVATAR_LOADS)
+                .toList()
+                .blockingGet();
+        for (RoundAvatarResult result : results) {
+            sRoundAvatarCache.put(result.userId, new RoundAvatar(result.url, result.bitmap));
+            avatars.put(result.userId, result.bitmap);
+        }
+        Log.d(TAG, "Loaded " + results.size() + " of " + missingUsers.size()
+                + " missing avatars in " + (SystemClock.elapsedRealtime() - start) + "ms");
+        return avatars;
+    }
+
+    private static class RoundAvatarResult {
+        final long userId;
+        final String url;
+        final Bitmap bitmap;
+
+        RoundAvatarResult(long userId, String url, Bitmap bitmap) {
+            this.userId = userId;
+            this.url = url;
+            this.bitmap = bitmap;
+        }
+    }
+
+    private RoundAvatarResult loadRoundUserAvatar(User user) {
         Bitmap avatar = AvatarHandler.loadUserAvatarSynchronously(getApplicationContext(), user);
         if (avatar == null) {
             return null;
         }
 
+        // The avatar is shared with the avatar cache, so draw a rounded copy of it
         final Bitmap output = Bitmap.createBitmap(avatar.getWidth(), avatar.getHeight(),
                 Bitmap.Config.ARGB_8888);
         final Canvas canvas = new Canvas(output);
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new BitmapShader(avatar, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        canvas.drawOval(new RectF(0, 0, avatar.getWidth(), avatar.getHeight()), paint);
 
-        final Paint paint = new Paint();
-        final Rect rect = new Rect(0, 0, avatar.getWidth(), avatar.getHeight());
-
-        paint.setAntiAlias(true);
-        canvas.drawARGB(0, 0, 0, 0);
-        paint.setColor(Color.BLACK);
-        canvas.drawOval(new RectF(rect), paint);
-
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-        canvas.drawBitmap(avatar, rect, rect, paint);
-
-        return output;
+        return new RoundAvatarResult(user.id(), user.avatarUrl(), output);
     }
 
     private static SharedPreferences getPrefs(Context context) {
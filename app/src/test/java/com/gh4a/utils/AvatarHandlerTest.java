@@ -0,0 +1,222 @@
+package com.gh4a.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Looper;
+import android.widget.ImageView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsCollectionContaining.hasItem;
+import static org.hamcrest.core.IsNot.not;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class AvatarHandlerTest {
+    private static final long TIMEOUT_MS = 10000;
+    // Must match the number of threads used by AvatarHandler
+    private static final int PARALLEL_LOADS = 4;
+
+    // Each test uses its own user IDs, as the memory cache is shared
+    private static long sNextUserId = 1;
+
+    private MockWebServer mServer;
+    private Context mContext;
+    // If set, responses are held back until the test releases permits
+    private volatile Semaphore mGate;
+
+    @Before
+    public void setup() throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        Buffer image = new Buffer();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, image.outputStream());
+
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                Semaphore gate = mGate;
+                if (gate != null) {
+                    gate.acquire();
+                }
+                return new MockResponse().setBody(image.clone());
+            }
+        });
+        mServer.start();
+        mContext = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        if (mGate != null) {
+            mGate.release(Integer.MAX_VALUE / 2);
+        }
+        mServer.shutdown();
+    }
+
+    @Test
+    public void requestsForSameUser__areCoalesced() throws Exception {
+        long userId = sNextUserId++;
+        List<ImageView> views = createViews(5);
+        for (ImageView view : views) {
+            assign(view, userId);
+        }
+
+        awaitAvatars(views);
+
+        assertThat(mServer.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void queuedRequests__newestAreLoadedFirst() throws Exception {
+        mGate = new Semaphore(0);
+        List<Long> blockingUsers = assignNewUsers(createViews(PARALLEL_LOADS));
+        awaitRequestCount(PARALLEL_LOADS);
+        List<Long> queuedUsers = assignNewUsers(createViews(PARALLEL_LOADS * 2));
+
+        // Let the blocking requests finish; their threads pick up the next requests
+        mGate.release(PARALLEL_LOADS);
+        awaitRequestCount(PARALLEL_LOADS * 2);
+
+        assertThat(takeRequestedUsers(PARALLEL_LOADS), containsInAnyOrder(
+                blockingUsers.toArray()));
+        assertThat(takeRequestedUsers(PARALLEL_LOADS), containsInAnyOrder(
+                queuedUsers.subList(PARALLEL_LOADS, queuedUsers.size()).toArray()));
+    }
+
+    @Test
+    public void rebindingToOtherUser__dropsQueuedRequest() throws Exception {
+        mGate = new Semaphore(0);
+        assignNewUsers(createViews(PARALLEL_LOADS));
+        awaitRequestCount(PARALLEL_LOADS);
+
+        // Simulate a fling: the rows are recycled before their avatars were requested
+        List<ImageView> views = createViews(PARALLEL_LOADS);
+        List<Long> droppedUsers = assignNewUsers(views);
+        List<Long> shownUsers = assignNewUsers(views);
+
+        mGate.release(Integer.MAX_VALUE / 2);
+        awaitAvatars(views);
+
+        takeRequestedUsers(PARALLEL_LOADS);
+        List<Long> requestedUsers = takeRequestedUsers(mServer.getRequestCount() - PARALLEL_LOADS);
+        assertThat(requestedUsers, containsInAnyOrder(shownUsers.toArray()));
+        for (long userId : droppedUsers) {
+            assertThat(requestedUsers, not(hasItem(userId)));
+        }
+    }
+
+    @Test
+    public void rebindingToSameUser__keepsRunningRequest() throws Exception {
+        mGate = new Semaphore(0);
+        ImageView view = new ImageView(mContext);
+        long userId = sNextUserId++;
+        assign(view, userId);
+        awaitRequestCount(1);
+
+        // E.g. caused by notifyItemChanged() while the avatar is still loading
+        assign(view, userId);
+        assign(view, userId);
+
+        mGate.release(Integer.MAX_VALUE / 2);
+        awaitAvatars(Collections.singletonList(view));
+
+        assertThat(mServer.getRequestCount(), is(1));
+    }
+
+    private List<Long> assignNewUsers(List<ImageView> views) {
+        List<Long> userIds = new ArrayList<>();
+        for (ImageView view : views) {
+            long userId = sNextUserId++;
+            assign(view, userId);
+            userIds.add(userId);
+        }
+        return userIds;
+    }
+
+    private List<ImageView> createViews(int count) {
+        List<ImageView> views = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            views.add(new ImageView(mContext));
+        }
+        return views;
+    }
+
+    private void assign(ImageView view, long userId) {
+        AvatarHandler.assignAvatar(view, "user" + userId, userId,
+                mServer.url("/u/" + userId).toString());
+    }
+
+    private void awaitRequestCount(int count) {
+        long deadline = now() + TIMEOUT_MS;
+        while (mServer.getRequestCount() < count) {
+            if (now() >= deadline) {
+                throw new AssertionError("Expected " + count + " requests, got "
+                        + mServer.getRequestCount());
+            }
+            sleep(5);
+        }
+    }
+
+    private List<Long> takeRequestedUsers(int count) throws InterruptedException {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            RecordedRequest request = mServer.takeRequest(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            userIds.add(Long.parseLong(request.getRequestUrl().pathSegments().get(1)));
+        }
+        return userIds;
+    }
+
+    private void awaitAvatars(List<ImageView> views) {
+        long deadline = now() + TIMEOUT_MS;
+        while (now() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            boolean allLoaded = true;
+            for (ImageView view : views) {
+                if (view.getDrawable() instanceof AvatarHandler.DefaultAvatarDrawable) {
+                    allLoaded = false;
+                    break;
+                }
+            }
+            if (allLoaded) {
+                return;
+            }
+            sleep(5);
+        }
+        throw new AssertionError("Avatars were not loaded in time");
+    }
+
+    // The Robolectric SystemClock doesn't advance on its own
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gh4a.utils;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+@RunWith(RobolectricTestRunner.class)
+public class BitmapPoolTest {
+    @Before
+    public void setup() {
+        BitmapPool.clear();
+    }
+
+    @Test
+    public void sampleSizeForMinimum__neverZero() {
+        // Images smaller than the target used to result in an inSampleSize of 0
+        assertThat(BitmapPool.calculateSampleSizeForMinimum(40, 40, 120, 120), is(1));
+        assertThat(BitmapPool.calculateSampleSizeForMinimum(460, 460, 120, 120), is(2));
+        assertThat(BitmapPool.calculateSampleSizeForMinimum(1000, 300, 120, 120), is(2));
+    }
+
+    @Test
+    public void sampleSizeForMaximumWidth__fitsIntoWidth() {
+        assertThat(BitmapPool.calculateSampleSizeForMaximumWidth(1080, 1080), is(1));
+        assertThat(BitmapPool.calculateSampleSizeForMaximumWidth(1081, 1080), is(2));
+        assertThat(BitmapPool.calculateSampleSizeForMaximumWidth(4000, 1080), is(4));
+    }
+
+    @Test
+    public void releasedBitmap__isReusedForSameSize() {
+        Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        BitmapPool.release(bitmap);
+        int hits = BitmapPool.getStats().hits;
+
+        Bitmap obtained = BitmapPool.obtain(100, 100);
+
+        assertThat(obtained, sameInstance(bitmap));
+        assertThat(BitmapPool.getStats().hits, is(hits + 1));
+        assertThat(BitmapPool.getStats().pooledCount, is(0));
+    }
+
+    @Test
+    public void releasedBitmap__isNotWastedOnMuchSmallerImages() {
+        Bitmap bitmap = Bitmap.createBitmap(400, 400, Bitmap.Config.ARGB_8888);
+        BitmapPool.release(bitmap);
+
+        Bitmap obtained = BitmapPool.obtain(50, 50);
+
+        assertThat(obtained, not(sameInstance(bitmap)));
+        assertThat(BitmapPool.getStats().pooledCount, is(1));
+    }
+
+    @Test
+    public void immutableBitmap__isNotPooled() {
+        Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888)
+                .copy(Bitmap.Config.ARGB_8888, false);
+        BitmapPool.release(bitmap);
+
+        assertThat(BitmapPool.getStats().pooledCount, is(0));
+        assertThat(bitmap.isRecycled(), is(true));
+    }
+}
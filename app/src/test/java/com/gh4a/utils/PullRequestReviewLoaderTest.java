@@ -0,0 +1,194 @@
+package com.gh4a.utils;
+
+import com.gh4a.model.GraphQlService;
+import com.meisolsson.githubsdk.core.ServiceGenerator;
+import com.meisolsson.githubsdk.model.Review;
+import com.meisolsson.githubsdk.model.ReviewComment;
+import com.meisolsson.githubsdk.model.ReviewState;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.List;
+
+import io.reactivex.observers.TestObserver;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@RunWith(RobolectricTestRunner.class)
+public class PullRequestReviewLoaderTest {
+    private static final String USER = """
+            { "__typename": "User", "login": "octocat", "databaseId": 583231,
+              "avatarUrl": "https://avatars.githubusercontent.com/u/583231",
+              "url": "https://github.com/octocat" }""";
+
+    private MockWebServer mServer;
+    private PullRequestReviewLoader mLoader;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+
+        GraphQlService service = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .addConverterFactory(MoshiConverterFactory.create(ServiceGenerator.moshi))
+                .build()
+                .create(GraphQlService.class);
+        mLoader = new PullRequestReviewLoader(service, "owner", "repo", 42);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void reviewsAndComments__areLoadedWithSingleQuery() throws Exception {
+        enqueueData(reviews(false, null,
+                review("R_1", 1, "APPROVED", false, null, comment(11, null)),
+                review("R_2", 2, "PENDING", false, null, comment(21, null))));
+
+        PullRequestReviewLoader.Result result = load();
+
+        assertThat(mServer.getRequestCount(), is(1));
+        RecordedRequest request = mServer.takeRequest();
+        assertThat(request.getMethod(), is("POST"));
+        assertThat(request.getPath(), is("/graphql"));
+        assertThat(request.getBody().readUtf8(), containsString("\"number\":42"));
+
+        assertThat(result.reviews.size(), is(2));
+        Review review = result.reviews.get(0);
+        assertThat(review.id(), is(1L));
+        assertThat(review.state(), is(ReviewState.Approved));
+        assertThat(review.user().login(), is("octocat"));
+
+        assertThat(result.comments.size(), is(1));
+        ReviewComment comment = result.comments.get(0);
+        assertThat(comment.id(), is(11L));
+        assertThat(comment.pullRequestReviewId(), is(1L));
+        assertThat(comment.path(), is("README.md"));
+        assertThat(comment.originalPosition(), is(3));
+        assertThat(comment.originalCommitId(), is("abc123"));
+        assertThat(comment.pullRequestUrl(),
+                is("https://api.github.com/repos/owner/repo/pulls/42"));
+        assertThat(comment.reactions().plusOne(), is(2));
+
+        List<ReviewComment> pendingComments = result.pendingReviewComments.get(2L);
+        assertThat(pendingComments.size(), is(1));
+        assertThat(pendingComments.get(0).id(), is(21L));
+    }
+
+    @Test
+    public void reviewsAndComments__followPagination() throws Exception {
+        enqueueData(reviews(true, "reviewCursor",
+                review("R_1", 1, "COMMENTED", true, "commentCursor", comment(11, null))));
+        enqueueData(reviews(false, null,
+                review("R_2", 2, "CHANGES_REQUESTED", false, null)));
+        enqueueData("""
+                { "node": { "comments": {
+                  "pageInfo": { "hasNextPage": false, "endCursor": null },
+                  "nodes": [ %s ] } } }""".formatted(comment(12, 11L)));
+
+        PullRequestReviewLoader.Result result = load();
+
+        assertThat(mServer.getRequestCount(), is(3));
+        assertThat(mServer.takeRequest().getBody().readUtf8(), not(containsString("cursor\":")));
+        assertThat(mServer.takeRequest().getBody().readUtf8(),
+                containsString("\"cursor\":\"reviewCursor\""));
+        String commentRequest = mServer.takeRequest().getBody().readUtf8();
+        assertThat(commentRequest, containsString("\"id\":\"R_1\""));
+        assertThat(commentRequest, containsString("\"cursor\":\"commentCursor\""));
+
+        assertThat(result.reviews.size(), is(2));
+        assertThat(result.comments.size(), is(2));
+        assertThat(result.comments.get(0).id(), is(11L));
+        assertThat(result.comments.get(1).id(), is(12L));
+        assertThat(result.comments.get(1).pullRequestReviewId(), is(1L));
+        assertThat(result.pendingReviewComments.isEmpty(), is(true));
+    }
+
+    @Test
+    public void graphQlErrors__failLoading() {
+        mServer.enqueue(new MockResponse().setBody("""
+                { "data": null, "errors": [ { "message": "Something went wrong" } ] }"""));
+
+        TestObserver<PullRequestReviewLoader.Result> observer = mLoader.load().test();
+        observer.awaitTerminalEvent();
+
+        observer.assertError(error -> error instanceof IOException
+                && error.getMessage().contains("Something went wrong"));
+    }
+
+    private PullRequestReviewLoader.Result load() {
+        TestObserver<PullRequestReviewLoader.Result> observer = mLoader.load().test();
+        observer.awaitTerminalEvent();
+        observer.assertNoErrors();
+        assertThat(observer.values().get(0), instanceOf(PullRequestReviewLoader.Result.class));
+        return observer.values().get(0);
+    }
+
+    private void enqueueData(String data) {
+        mServer.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{ \"data\": " + data + " }"));
+    }
+
+    private static String reviews(boolean hasNextPage, String endCursor, String... reviews) {
+        return """
+                { "repository": { "pullRequest": { "reviews": {
+                  "pageInfo": { "hasNextPage": %b, "endCursor": %s },
+                  "nodes": [ %s ] } } } }""".formatted(hasNextPage, quote(endCursor),
+                String.join(",", reviews));
+    }
+
+    private static String review(String nodeId, long id, String state,
+            boolean hasMoreComments, String commentCursor, String... comments) {
+        return """
+                { "id": "%s", "databaseId": %d, "author": %s, "authorAssociation": "MEMBER",
+                  "body": "Review body", "bodyHTML": "<p>Review body</p>", "state": "%s",
+                  "submittedAt": "2024-05-01T10:00:00Z",
+                  "url": "https://github.com/owner/repo/pull/42#pullrequestreview-%d",
+                  "commit": { "oid": "abc123" },
+                  "comments": {
+                    "pageInfo": { "hasNextPage": %b, "endCursor": %s },
+                    "nodes": [ %s ] } }""".formatted(nodeId, id, USER, state, id,
+                hasMoreComments, quote(commentCursor), String.join(",", comments));
+    }
+
+    private static String comment(long id, Long replyToId) {
+        return """
+                { "id": "C_%d", "databaseId": %d, "author": %s, "authorAssociation": "MEMBER",
+                  "body": "Comment", "bodyHTML": "<p>Comment</p>",
+                  "createdAt": "2024-05-01T09:00:00Z", "updatedAt": "2024-05-01T09:00:00Z",
+                  "url": "https://github.com/owner/repo/pull/42#discussion_r%d",
+                  "path": "README.md", "diffHunk": "@@ -1,3 +1,3 @@",
+                  "position": 3, "originalPosition": 3, "line": 3, "originalLine": 3,
+                  "commit": { "oid": "abc123" }, "originalCommit": { "oid": "abc123" },
+                  "replyTo": %s,
+                  "reactionGroups": [
+                    { "content": "THUMBS_UP", "reactors": { "totalCount": 2 } },
+                    { "content": "HEART", "reactors": { "totalCount": 0 } } ] }""".formatted(
+                id, id, USER, id,
+                replyToId != null ? "{ \"databaseId\": " + replyToId + " }" : "null");
+    }
+
+    private static String quote(String value) {
+        return value != null ? "\"" + value + "\"" : "null";
+    }
+}
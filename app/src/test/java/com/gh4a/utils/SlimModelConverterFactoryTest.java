@@ -0,0 +1,226 @@
+package com.gh4a.utils;
+
+import com.meisolsson.githubsdk.core.ServiceGenerator;
+import com.meisolsson.githubsdk.model.GitHubEvent;
+import com.meisolsson.githubsdk.model.NotificationThread;
+import com.meisolsson.githubsdk.model.Repository;
+import com.meisolsson.githubsdk.model.User;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Types;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SlimModelConverterFactoryTest {
+    private static final Type NOTIFICATION_LIST_TYPE =
+            Types.newParameterizedType(List.class, NotificationThread.class);
+    private static final Type EVENT_LIST_TYPE =
+            Types.newParameterizedType(List.class, GitHubEvent.class);
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private static final int BENCHMARK_ITEMS = 100;
+    private static final int BENCHMARK_REPOSITORIES = 8;
+    private static final int BENCHMARK_ITERATIONS = 50;
+
+    @Test
+    public void notifications__keepUsedRepositoryFields() throws Exception {
+        List<NotificationThread> notifications =
+                convert(NOTIFICATION_LIST_TYPE, notifications(2, 1));
+
+        Repository repository = notifications.get(0).repository();
+        assertThat(repository.id(), is(1000L));
+        assertThat(repository.name(), is("repo0"));
+        assertThat(repository.fullName(), is("owner0/repo0"));
+        assertThat(repository.description(), is("Description 0"));
+        assertThat(repository.owner().login(), is("owner0"));
+        assertThat(repository.owner().id(), is(2000L));
+        assertThat(repository.owner().avatarUrl(),
+                is("https://avatars.githubusercontent.com/u/2000?v=4"));
+        assertThat(notifications.get(0).subject().title(), is("Subject 0"));
+        assertThat(notifications.get(0).unread(), is(true));
+    }
+
+    @Test
+    public void notifications__dropUnusedRepositoryFields() throws Exception {
+        List<NotificationThread> notifications =
+                convert(NOTIFICATION_LIST_TYPE, notifications(1, 1));
+
+        Repository repository = notifications.get(0).repository();
+        assertThat(repository.url(), nullValue());
+        assertThat(repository.owner().url(), nullValue());
+    }
+
+    @Test
+    public void notifications__shareEqualRepositories() throws Exception {
+        List<NotificationThread> notifications =
+                convert(NOTIFICATION_LIST_TYPE, notifications(3, 2));
+
+        assertThat(notifications.get(2).repository(),
+                sameInstance(notifications.get(0).repository()));
+        assertThat(notifications.get(1).repository().id(), is(1001L));
+    }
+
+    @Test
+    public void events__shareEqualActors() throws Exception {
+        List<GitHubEvent> events = convert(EVENT_LIST_TYPE, events(4, 2));
+
+        User actor = events.get(0).actor();
+        assertThat(actor.login(), is("actor0"));
+        assertThat(events.get(2).actor(), sameInstance(actor));
+        assertThat(events.get(1).repo().repoWithUserName(), is("owner1/repo1"));
+    }
+
+    /**
+     * Compares the allocations of decoding a notification page with and without the
+     * slim converter. Allocated bytes, unlike parse time, don't depend on machine load.
+     */
+    @Test
+    public void slimDecoding__allocatesLess() throws Exception {
+        String json = notifications(BENCHMARK_ITEMS, BENCHMARK_REPOSITORIES);
+        JsonAdapter<List<NotificationThread>> defaultAdapter =
+                ServiceGenerator.moshi.adapter(NOTIFICATION_LIST_TYPE);
+        Converter<ResponseBody, List<NotificationThread>> slimConverter =
+                createConverter(NOTIFICATION_LIST_TYPE);
+
+        long defaultBytes = measureAllocatedBytes(() -> defaultAdapter.fromJson(json));
+        long slimBytes = measureAllocatedBytes(
+                () -> slimConverter.convert(ResponseBody.create(json, JSON)));
+
+        assertTrue(slimBytes < defaultBytes);
+    }
+
+    private interface Decoder {
+        Object decode() throws IOException;
+    }
+
+    private static long measureAllocatedBytes(Decoder decoder) throws IOException {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up adapters and JIT
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            decoder.decode();
+        }
+
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            decoder.decode();
+        }
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return bytes / BENCHMARK_ITERATIONS;
+    }
+
+    private static <T> T convert(Type type, String json) throws IOException {
+        Converter<ResponseBody, T> converter = createConverter(type);
+        return converter.convert(ResponseBody.create(json, JSON));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Converter<ResponseBody, T> createConverter(Type type) {
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl("https://api.github.com")
+                .build();
+        return (Converter<ResponseBody, T>) SlimModelConverterFactory.create()
+                .responseBodyConverter(type, new Annotation[0], retrofit);
+    }
+
+    private static String notifications(int count, int repositoryCount) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int repo = i % repositoryCount;
+            items.add("""
+                    { "id": "%d", "unread": true, "reason": "subscribed",
+                      "updated_at": "2024-05-01T10:00:00Z", "last_read_at": null,
+                      "subject": { "title": "Subject %d", "type": "Issue",
+                        "url": "https://api.github.com/repos/owner%d/repo%d/issues/%d",
+                        "latest_comment_url": null },
+                      "repository": %s,
+                      "url": "https://api.github.com/notifications/threads/%d",
+                      "subscription_url": "https://api.github.com/notifications/threads/%d/subscription"
+                    }""".formatted(i, i, repo, repo, i, repository(repo), i, i));
+        }
+        return "[" + String.join(",", items) + "]";
+    }
+
+    private static String events(int count, int actorCount) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int actor = i % actorCount;
+            items.add("""
+                    { "id": "%d", "type": "WatchEvent", "public": true,
+                      "created_at": "2024-05-01T10:00:00Z",
+                      "actor": %s,
+                      "repo": { "id": %d, "name": "owner%d/repo%d",
+                        "url": "https://api.github.com/repos/owner%d/repo%d" },
+                      "payload": { "action": "started" } }""".formatted(i,
+                    user("actor" + actor, 3000 + actor), 1000 + i, i, i, i, i));
+        }
+        return "[" + String.join(",", items) + "]";
+    }
+
+    private static String repository(int index) {
+        String owner = "owner" + index;
+        String name = "repo" + index;
+        String api = "https://api.github.com/repos/" + owner + "/" + name;
+        StringBuilder json = new StringBuilder()
+                .append("{ \"id\": ").append(1000 + index)
+                .append(", \"node_id\": \"MDEwOlJlcG9zaXRvcnkx\"")
+                .append(", \"name\": \"").append(name).append('"')
+                .append(", \"full_name\": \"").append(owner).append('/').append(name).append('"')
+                .append(", \"private\": false, \"fork\": false")
+                .append(", \"owner\": ").append(user(owner, 2000 + index))
+                .append(", \"html_url\": \"https://github.com/").append(owner).append('/')
+                .append(name).append('"')
+                .append(", \"description\": \"Description ").append(index).append('"')
+                .append(", \"url\": \"").append(api).append('"');
+        String[] urlFields = {
+            "forks", "keys", "collaborators", "teams", "hooks", "issue_events", "events",
+            "assignees", "branches", "tags", "blobs", "git_tags", "git_refs", "trees",
+            "statuses", "languages", "stargazers", "contributors", "subscribers",
+            "subscription", "commits", "git_commits", "comments", "issue_comment", "contents",
+            "compare", "merges", "archive", "downloads", "issues", "pulls", "milestones",
+            "notifications", "labels", "releases", "deployments"
+        };
+        for (String field : urlFields) {
+            json.append(", \"").append(field).append("_url\": \"").append(api).append('/')
+                    .append(field).append("{/id}\"");
+        }
+        return json.append(" }").toString();
+    }
+
+    private static String user(String login, long id) {
+        String api = "https://api.github.com/users/" + login;
+        return """
+                { "login": "%s", "id": %d, "node_id": "MDQ6VXNlcjE=",
+                  "avatar_url": "https://avatars.githubusercontent.com/u/%d?v=4",
+                  "gravatar_id": "", "url": "%s", "html_url": "https://github.com/%s",
+                  "followers_url": "%s/followers", "following_url": "%s/following{/other_user}",
+                  "gists_url": "%s/gists{/gist_id}", "starred_url": "%s/starred{/owner}{/repo}",
+                  "subscriptions_url": "%s/subscriptions", "organizations_url": "%s/orgs",
+                  "repos_url": "%s/repos", "events_url": "%s/events{/privacy}",
+                  "received_events_url": "%s/received_events", "type": "User",
+                  "site_admin": false }""".formatted(login, id, id, api, login,
+                api, api, api, api, api, api, api, api, api);
+    }
+}